@@ -0,0 +1,34 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import problems.qbf.QBF;
+import problems.qbf.SCQBF;
+
+/**
+ * Carrega as instâncias usadas nos benchmarks. Os caminhos são relativos à
+ * raiz do repositório; como o JMH costuma ser executado a partir de bench/,
+ * o diretório pai também é procurado.
+ */
+public final class Instances {
+
+    private Instances() {
+    }
+
+    public static File resolve(String path) {
+        File file = new File(path);
+        if (!file.exists()) {
+            File parent = new File("..", path);
+            if (parent.exists()) {
+                return parent;
+            }
+        }
+        return file;
+    }
+
+    /** Instâncias em instances/qbfsc são SCQBF; as demais, QBF. */
+    public static QBF load(String path) throws IOException {
+        String file = resolve(path).getPath();
+        return path.contains("qbfsc") ? new SCQBF(file) : new QBF(file);
+    }
+}
@@ -0,0 +1,173 @@
+package metaheuristics.ga;
+
+import benchmarks.Instances;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import solutions.Solution;
+
+/**
+ * Operadores de GA_SCQBF isolados e uma geração completa. A população, os
+ * pais e os filhos são gerados uma vez por trial, com semente fixa; os
+ * operadores que alteram a entrada (mutate, selectPopulation) trabalham
+ * sobre cópias, cujo custo entra na medida. selectParents e crossover
+ * escrevem nos buffers do próprio GA, como no laço de gerações.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class GABench {
+
+    @Param({ "instances/qbf/qbf020", "instances/qbf/qbf040", "instances/qbf/qbf060", "instances/qbf/qbf080",
+            "instances/qbf/qbf100", "instances/qbf/qbf200", "instances/qbf/qbf400",
+            "instances/qbfsc/scqbf025.txt" })
+    public String instance;
+
+    @Param({ "100" })
+    public int popSize;
+
+    private GA_SCQBF ga;
+    private AbstractGA<Integer>.Population population;
+    private AbstractGA<Integer>.Population parents;
+    private AbstractGA<Integer>.Population offsprings;
+    private AbstractGA<Integer>.Chromosome chromosome;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ga = new GA_SCQBF(Instances.load(instance), Integer.MAX_VALUE, popSize, 0.05);
+        ga.setVerbose(false);
+        ga.setSeed(42);
+        ga.initialize();
+        population = ga.population;
+        // cópias: selectParents e crossover devolvem os buffers do GA, reescritos a cada chamada
+        parents = ga.new Population();
+        parents.addAll(ga.selectParents(population));
+        offsprings = ga.new Population();
+        for (AbstractGA<Integer>.Chromosome c : ga.crossover(parents)) {
+            offsprings.add(ga.new Chromosome(c));
+        }
+        ga.evaluatePopulation(offsprings);
+        chromosome = population.get(0);
+    }
+
+    @Benchmark
+    public double fitness() {
+        return ga.fitness(chromosome);
+    }
+
+    @Benchmark
+    public Solution<Integer> decode() {
+        return ga.decode(chromosome);
+    }
+
+    @Benchmark
+    public Object tournamentSelection() {
+        ga.useSUS = false;
+        return ga.selectParents(population);
+    }
+
+    @Benchmark
+    public Object stochasticUniversalSelection() {
+        ga.useSUS = true;
+        try {
+            return ga.selectParents(population);
+        } finally {
+            ga.useSUS = false;
+        }
+    }
+
+    @Benchmark
+    public Object rouletteSelection() {
+        ga.selection = AbstractGA.Selection.ROULETTE;
+        try {
+            return ga.selectParents(population);
+        } finally {
+            ga.selection = AbstractGA.Selection.TOURNAMENT;
+        }
+    }
+
+    @Benchmark
+    public Object twoPointCrossover() {
+        ga.useUniformCrossover = false;
+        return ga.crossover(parents);
+    }
+
+    @Benchmark
+    public Object uniformCrossover() {
+        ga.useUniformCrossover = true;
+        try {
+            return ga.crossover(parents);
+        } finally {
+            ga.useUniformCrossover = false;
+        }
+    }
+
+    @Benchmark
+    public Object mutate() {
+        AbstractGA<Integer>.Population copy = ga.new Population();
+        for (AbstractGA<Integer>.Chromosome c : offsprings) {
+            AbstractGA<Integer>.Chromosome child = ga.new Chromosome(c);
+            child.invalidateFitness();
+            copy.add(child);
+        }
+        return ga.mutate(copy);
+    }
+
+    @Benchmark
+    public Object elitistSelectPopulation() {
+        ga.useSteadyState = false;
+        AbstractGA<Integer>.Population old = ga.new Population();
+        old.addAll(population);
+        AbstractGA<Integer>.Population copy = ga.new Population();
+        copy.addAll(offsprings);
+        return ga.selectPopulation(old, copy);
+    }
+
+    @Benchmark
+    public Object steadyStateSelectPopulation() {
+        ga.useSteadyState = true;
+        try {
+            AbstractGA<Integer>.Population old = ga.new Population();
+            old.addAll(population);
+            AbstractGA<Integer>.Population copy = ga.new Population();
+            copy.addAll(offsprings);
+            return ga.selectPopulation(old, copy);
+        } finally {
+            ga.useSteadyState = false;
+        }
+    }
+
+    @Benchmark
+    public Object uniqueTruncationSelectPopulation() {
+        ga.replacement = AbstractGA.Replacement.TRUNCATION_UNIQUE;
+        try {
+            AbstractGA<Integer>.Population old = ga.new Population();
+            old.addAll(population);
+            AbstractGA<Integer>.Population copy = ga.new Population();
+            copy.addAll(offsprings);
+            return ga.selectPopulation(old, copy);
+        } finally {
+            ga.replacement = AbstractGA.Replacement.ELITIST;
+        }
+    }
+
+    @Benchmark
+    public Solution<Integer> generation() {
+        ga.nextGeneration();
+        return ga.bestSol;
+    }
+}
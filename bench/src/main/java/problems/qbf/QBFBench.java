@@ -0,0 +1,126 @@
+package problems.qbf;
+
+import benchmarks.Instances;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import solutions.Solution;
+
+/**
+ * Avaliação completa e deltas de um QBF/SCQBF para uma solução aleatória com
+ * metade das variáveis em 1. Os métodos *QBF() usam o vetor variables,
+ * preenchido uma vez no setup; os demais, os pontos de entrada thread-safe.
+ * evaluatePopulation/evaluateBatch comparam POPULATION avaliações uma a uma
+ * com a avaliação em lote (produto em blocos).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class QBFBench {
+
+    private static final int POPULATION = 100;
+
+    @Param({ "instances/qbf/qbf020", "instances/qbf/qbf040", "instances/qbf/qbf060", "instances/qbf/qbf080",
+            "instances/qbf/qbf100", "instances/qbf/qbf200", "instances/qbf/qbf400",
+            "instances/qbfsc/scqbf025.txt" })
+    public String instance;
+
+    private QBF qbf;
+    private Solution<Integer> sol;
+    private long[] bits;
+    private int in, out; // in fora da solução, out na solução
+    private long[][] population;
+    private double[] values;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        qbf = Instances.load(instance);
+        Random random = new Random(42);
+        sol = new Solution<>();
+        bits = new long[(qbf.size + 63) >>> 6];
+        for (int i = 0; i < qbf.size; i++) {
+            if (random.nextBoolean()) {
+                sol.add(i);
+                bits[i >>> 6] |= 1L << i;
+            } else {
+                in = i;
+            }
+        }
+        out = sol.isEmpty() ? 0 : sol.get(sol.size() / 2);
+        qbf.setVariables(sol);
+        population = new long[POPULATION][bits.length];
+        for (long[] x : population) {
+            for (int i = 0; i < qbf.size; i++) {
+                if (random.nextBoolean()) {
+                    x[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+        values = new double[POPULATION];
+    }
+
+    @Benchmark
+    public double evaluateQBF() {
+        return qbf.evaluateQBF();
+    }
+
+    @Benchmark
+    public double evaluateInsertionQBF() {
+        return qbf.evaluateInsertionQBF(in);
+    }
+
+    @Benchmark
+    public double evaluateRemovalQBF() {
+        return qbf.evaluateRemovalQBF(out);
+    }
+
+    @Benchmark
+    public double evaluateExchangeQBF() {
+        return qbf.evaluateExchangeQBF(in, out);
+    }
+
+    @Benchmark
+    public double evaluateSolution() {
+        return qbf.evaluate(sol);
+    }
+
+    @Benchmark
+    public double evaluateBits() {
+        return qbf.evaluateQBF(bits);
+    }
+
+    @Benchmark
+    public double evaluateFlipBits() {
+        return qbf.evaluateFlipQBF(in, bits);
+    }
+
+    @Benchmark
+    public double evaluatePopulation() {
+        double sum = 0.0;
+        for (long[] x : population) {
+            sum += qbf.evaluate(x);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double[] evaluateBatch() {
+        qbf.evaluate(population, POPULATION, values);
+        return values;
+    }
+}
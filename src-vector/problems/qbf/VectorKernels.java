@@ -0,0 +1,182 @@
+package problems.qbf;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels over the packed coefficients of {@link DenseCoefficients},
+ * written with the Vector API (module jdk.incubator.vector). A row segment
+ * of the packed triangle is contiguous and is read with plain vector loads;
+ * a column segment, where consecutive coefficients are one row apart, is
+ * read with gathers through a table of row offsets. When the solution is a
+ * bit vector, the lanes are enabled by masks built directly from its words:
+ * the bits of a block are broadcast to a vector of longs, isolated with one
+ * bit per lane and compared to zero, which the JIT compiles to a few vector
+ * instructions (unlike {@code VectorMask.fromLong}, which is not intrinsic in
+ * JDK 17).
+ * 
+ * This source set (src-vector) is compiled apart from src, since it needs the
+ * module at compile time, and against it:
+ * 
+ *     javac -d out $(find src -name '*.java')
+ *     javac --add-modules jdk.incubator.vector -cp out -d out $(find src-vector -name '*.java')
+ * 
+ * {@link DenseCoefficients} loads this class reflectively, only when the
+ * module is available at run time, and falls back to its scalar kernels when
+ * it is absent from the class path.
+ */
+final class VectorKernels implements SimdKernels {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	private static final int LANES = SPECIES.length();
+
+	private static final long LANE_BITS = LANES >= 64 ? -1L : (1L << LANES) - 1;
+
+	private static final VectorSpecies<Long> BIT_SPECIES = VectorSpecies.of(long.class, SPECIES.vectorShape());
+
+	/**
+	 * Lane k holds 1L << k.
+	 */
+	private static final LongVector LANE_BIT = LongVector.fromArray(BIT_SPECIES, laneBits(), 0);
+
+	VectorKernels() {
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.qbf.SimdKernels#lanes()
+	 */
+	@Override
+	public int lanes() {
+		return LANES;
+	}
+
+	private static long[] laneBits() {
+		long[] bits = new long[LANES];
+		for (int k = 0; k < LANES; k++)
+			bits[k] = 1L << k;
+		return bits;
+	}
+
+	/**
+	 * Gives the mask whose lane k is set when bit k of bits is 1.
+	 */
+	private static VectorMask<Double> mask(long bits) {
+		return LongVector.broadcast(BIT_SPECIES, bits).and(LANE_BIT).compare(VectorOperators.NE, 0L).cast(SPECIES);
+	}
+
+	/**
+	 * Gives the bits x_j, ..., x_{j+LANES-1} of a bit vector, x_j being the
+	 * lowest one.
+	 */
+	private static long bitsAt(long[] x, int j) {
+		int w = j >>> 6, shift = j & 63;
+		long bits = x[w] >>> shift;
+		if (shift + LANES > 64 && w + 1 < x.length)
+			bits |= x[w + 1] << (64 - shift);
+		return bits & LANE_BITS;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.qbf.SimdKernels#maskedSum(double[], int, long[], int, int)
+	 */
+	@Override
+	public double maskedSum(double[] a, int base, long[] x, int from, int to) {
+		DoubleVector acc = DoubleVector.zero(SPECIES);
+		int j = from;
+		for (int bound = from + SPECIES.loopBound(to - from); j < bound; j += LANES) {
+			long bits = bitsAt(x, j);
+			if (bits != 0L)
+				acc = acc.add(DoubleVector.fromArray(SPECIES, a, base + j), mask(bits));
+		}
+		if (j < to) {
+			VectorMask<Double> m = mask(bitsAt(x, j)).and(SPECIES.indexInRange(j, to));
+			acc = acc.add(DoubleVector.fromArray(SPECIES, a, base + j, m), m);
+		}
+		return acc.reduceLanes(VectorOperators.ADD);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.qbf.SimdKernels#dot(double[], int, double[], int, int)
+	 */
+	@Override
+	public double dot(double[] a, int base, double[] x, int from, int to) {
+		DoubleVector acc = DoubleVector.zero(SPECIES);
+		int j = from;
+		for (int bound = from + SPECIES.loopBound(to - from); j < bound; j += LANES) {
+			acc = acc.add(DoubleVector.fromArray(SPECIES, x, j).mul(DoubleVector.fromArray(SPECIES, a, base + j)));
+		}
+		if (j < to) {
+			VectorMask<Double> m = SPECIES.indexInRange(j, to);
+			acc = acc.add(DoubleVector.fromArray(SPECIES, x, j, m).mul(DoubleVector.fromArray(SPECIES, a, base + j, m)));
+		}
+		return acc.reduceLanes(VectorOperators.ADD);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.qbf.SimdKernels#columnDot(double[], int[], double[], int)
+	 */
+	@Override
+	public double columnDot(double[] a, int[] columnBase, double[] x, int i) {
+		DoubleVector acc = DoubleVector.zero(SPECIES);
+		int j = 0;
+		for (int bound = SPECIES.loopBound(i); j < bound; j += LANES) {
+			acc = acc.add(DoubleVector.fromArray(SPECIES, x, j).mul(DoubleVector.fromArray(SPECIES, a, i, columnBase, j)));
+		}
+		if (j < i) {
+			VectorMask<Double> m = SPECIES.indexInRange(j, i);
+			acc = acc.add(DoubleVector.fromArray(SPECIES, x, j, m).mul(DoubleVector.fromArray(SPECIES, a, i, columnBase, j, m)));
+		}
+		return acc.reduceLanes(VectorOperators.ADD);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.qbf.SimdKernels#axpy(double[], int, double, double[], int, int)
+	 */
+	@Override
+	public void axpy(double[] a, int base, double scale, double[] g, int from, int to) {
+		int j = from;
+		for (int bound = from + SPECIES.loopBound(to - from); j < bound; j += LANES) {
+			DoubleVector.fromArray(SPECIES, g, j).add(DoubleVector.fromArray(SPECIES, a, base + j).mul(scale))
+					.intoArray(g, j);
+		}
+		if (j < to) {
+			VectorMask<Double> m = SPECIES.indexInRange(j, to);
+			DoubleVector.fromArray(SPECIES, g, j, m).add(DoubleVector.fromArray(SPECIES, a, base + j, m).mul(scale))
+					.intoArray(g, j, m);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.qbf.SimdKernels#columnAxpy(double[], int[], int, double, double[])
+	 */
+	@Override
+	public void columnAxpy(double[] a, int[] columnBase, int i, double scale, double[] g) {
+		int j = 0;
+		for (int bound = SPECIES.loopBound(i); j < bound; j += LANES) {
+			DoubleVector.fromArray(SPECIES, g, j).add(DoubleVector.fromArray(SPECIES, a, i, columnBase, j).mul(scale))
+					.intoArray(g, j);
+		}
+		if (j < i) {
+			VectorMask<Double> m = SPECIES.indexInRange(j, i);
+			DoubleVector.fromArray(SPECIES, g, j, m)
+					.add(DoubleVector.fromArray(SPECIES, a, i, columnBase, j, m).mul(scale)).intoArray(g, j, m);
+		}
+	}
+
+}
@@ -1,22 +1,256 @@
 package metaheuristics.ga;
 
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import problems.EvaluationBudgetExceededException;
 import problems.Evaluator;
 import solutions.Solution;
 
-public abstract class AbstractGA<G extends Number, F> {
+public abstract class AbstractGA<F> {
 
-    @SuppressWarnings("serial")
-    public class Chromosome extends ArrayList<G> {
+    /**
+     * Cromossomo binário compactado: o gene (locus) i é o bit (i % 64) da
+     * palavra words[i / 64]. Os bits além de chromosomeSize na última
+     * palavra são sempre zero.
+     */
+    public class Chromosome {
+
+        private final long[] words;
+
+        // fitness memorizado, válido apenas enquanto evaluated (primitivo: sem boxing por avaliação)
+        private double fitness;
+        private boolean evaluated;
+
+        // hash de Zobrist dos genes; calculado no primeiro uso e depois mantido a cada alteração
+        private long hash;
+        private boolean hashed;
+
+        public Chromosome() {
+            words = new long[wordCount()];
+        }
+
+        public Chromosome(Chromosome other) {
+            words = other.words.clone();
+            fitness = other.fitness;
+            evaluated = other.evaluated;
+            hash = other.hash;
+            hashed = other.hashed;
+        }
+
+        /** Copia genes e fitness de outro cromossomo, reaproveitando este armazenamento. */
+        public void copyFrom(Chromosome other) {
+            System.arraycopy(other.words, 0, words, 0, words.length);
+            fitness = other.fitness;
+            evaluated = other.evaluated;
+            hash = other.hash;
+            hashed = other.hashed;
+        }
+
+        /**
+         * Retorna o fitness do cromossomo, avaliando-o apenas na primeira
+         * chamada após sua criação ou alteração.
+         */
+        public double getFitness() {
+            if (!evaluated && !fromCache()) {
+                store(AbstractGA.this.fitness(this));
+                evaluations++;
+            }
+            return fitness;
+        }
+
+        /** Obtém o fitness do cache, se houver; retorna se o cromossomo ficou avaliado. */
+        private boolean fromCache() {
+            FitnessCache cache = fitnessCache;
+            if (cache == null) {
+                return false;
+            }
+            double cached = cache.get(hash(), words);
+            if (Double.isNaN(cached)) {
+                return false;
+            }
+            setFitness(cached);
+            return true;
+        }
+
+        /** Define o fitness recém-calculado, registrando-o também no cache. */
+        private void store(double fitness) {
+            setFitness(fitness);
+            if (fitnessCache != null) {
+                fitnessCache.put(hash(), words, fitness);
+            }
+        }
+
+        /** Hash de Zobrist dos genes. */
+        public long hash() {
+            if (!hashed) {
+                hash = zobrist().hash(words);
+                hashed = true;
+            }
+            return hash;
+        }
+
+        public boolean isEvaluated() {
+            return evaluated;
+        }
+
+        /** Descarta o fitness (e o hash) após alteração direta de words(). */
+        public void invalidateFitness() {
+            evaluated = false;
+            hashed = false;
+        }
+
+        /** Define o fitness já conhecido, p.ex. obtido por avaliação incremental. */
+        public void setFitness(double fitness) {
+            this.fitness = fitness;
+            this.evaluated = true;
+        }
+
+        public int get(int locus) {
+            return (int) (words[locus >>> 6] >>> locus) & 1;
+        }
+
+        public void set(int locus, int value) {
+            long old = words[locus >>> 6];
+            long updated = value != 0 ? old | (1L << locus) : old & ~(1L << locus);
+            if (updated != old) {
+                words[locus >>> 6] = updated;
+                evaluated = false;
+                if (hashed) {
+                    hash ^= zobrist.key(locus);
+                }
+            }
+        }
+
+        public void flip(int locus) {
+            words[locus >>> 6] ^= 1L << locus;
+            evaluated = false;
+            if (hashed) {
+                hash ^= zobrist.key(locus);
+            }
+        }
+
+        /** Inverte os genes de diff na palavra w, atualizando o hash em O(1) por palavra. */
+        private void xorWord(int w, long diff) {
+            words[w] ^= diff;
+            if (hashed) {
+                hash ^= zobrist.word(w, diff);
+            }
+        }
+
+        /** Palavras de 64 genes; quem alterar o vetor deve chamar invalidateFitness(). */
+        public long[] words() {
+            return words;
+        }
+
+        public int size() {
+            return chromosomeSize;
+        }
+
+        /** Índice do próximo gene igual a 1 a partir de from, ou -1 se não houver. */
+        public int nextSetBit(int from) {
+            int w = from >>> 6;
+            if (w >= words.length) {
+                return -1;
+            }
+            long word = words[w] & (-1L << from);
+            while (true) {
+                if (word != 0) {
+                    return (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+                if (++w == words.length) {
+                    return -1;
+                }
+                word = words[w];
+            }
+        }
+
+        public int cardinality() {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof AbstractGA.Chromosome)) {
+                return false;
+            }
+            return Arrays.equals(words, ((AbstractGA<?>.Chromosome) obj).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(words);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(chromosomeSize);
+            for (int locus = 0; locus < chromosomeSize; locus++) {
+                sb.append(get(locus));
+            }
+            return sb.toString();
+        }
     }
 
     @SuppressWarnings("serial")
     public class Population extends ArrayList<Chromosome> {
     }
 
+    /** Estratégias de seleção de pais. */
+    public enum Selection {
+        /** torneio entre tournamentSize indivíduos sorteados (padrão, binário) */
+        TOURNAMENT,
+        /** amostragem estocástica universal sobre os pesos de scaling */
+        SUS,
+        /** roleta sobre os pesos de scaling, com busca binária nas somas prefixas */
+        ROULETTE,
+        /** roleta com pesos exp((f - fmax) / T), T = boltzmannTemperature * (fmax - fmin) */
+        BOLTZMANN
+    }
+
+    /** Transformação do fitness em pesos para SUS e roleta; ambas aceitam fitness negativo. */
+    public enum Scaling {
+        /** peso f - fmin: proporcional à distância ao pior indivíduo */
+        LINEAR,
+        /** ranking linear: peso (2 - s) + 2 (s - 1) r / (m - 1), r = posição do pior (0) ao melhor */
+        RANK
+    }
+
+    /** Estratégias de seleção dos sobreviventes (popSize = μ, nº de filhos = λ). */
+    public enum Replacement {
+        /** os filhos substituem os pais, preservando o melhor indivíduo (padrão) */
+        ELITIST,
+        /** (μ+λ): os μ melhores entre pais e filhos */
+        PLUS,
+        /** (μ,λ): os μ melhores entre os filhos */
+        COMMA,
+        /** truncamento de pais + filhos sem cromossomos repetidos (completa com repetidos se faltar) */
+        TRUNCATION_UNIQUE
+    }
+
+    // padrão de verbosidade dos GAs criados a partir de então; cada GA tem o seu (setVerbose)
     public static boolean verbose = true;
-    public static final Random rng = new Random(0);
+    public static final long DEFAULT_SEED = 0L;
+
+    // gerador próprio da execução, usado por seleção, crossover, mutação e geração de cromossomos
+    protected SplitMix64 rng = new SplitMix64(DEFAULT_SEED);
 
     protected Evaluator<F> ObjFunction;
     protected int generations;
@@ -25,23 +259,149 @@ public abstract class AbstractGA<G extends Number, F> {
     protected double mutationRate;
 
     protected Double bestCost;
+    protected Population population;
     protected Solution<F> bestSol;
     protected Chromosome bestChromosome;
 
+    // ==== Buffers reaproveitados entre gerações ====
+    // population e offspringBuffer guardam juntos 2*popSize cromossomos distintos: a cada
+    // geração os filhos são escritos sobre offspringBuffer e, após a seleção, os descartados
+    // voltam a ser o armazenamento dos filhos da geração seguinte.
+    protected Population offspringBuffer;
+    protected Population parentBuffer;
+    // cromossomos avaliados em lote na geração corrente e seus fitness
+    private final List<Chromosome> pending = new ArrayList<>();
+    private double[] pendingFitness = new double[0];
+    // fotografia do fitness da população, somas prefixas dos pesos e cópia ordenada (ranking)
+    private double[] selectionFitness = new double[0];
+    private double[] selectionPrefix = new double[0];
+    private double[] selectionSorted = new double[0];
+    // loci sorteados para a mutação do cromossomo corrente
+    private int[] mutationLoci = new int[0];
+    // genes trocados entre os filhos do par corrente e loci que os distinguem do pai mais próximo
+    private long[] crossoverDiff = new long[0];
+    private int[] crossoverLoci = new int[0];
+
+    // ==== Seleção de sobreviventes sobre vetores primitivos ====
+    // candidatos (pais seguidos de filhos), seus fitness e a ordem produzida pela seleção parcial
+    private final List<Chromosome> candidates = new ArrayList<>();
+    private double[] candidateFitness = new double[0];
+    private int[] candidateOrder = new int[0];
+    // tabela de espalhamento (endereçamento aberto) e repetidos, usados em TRUNCATION_UNIQUE
+    private int[] uniqueTable = new int[0];
+    private int[] duplicates = new int[0];
+
     // ==== Flags para estratégias evolutivas ====
-    protected boolean useSUS = false;
+    protected boolean useSUS = false;           // atalho para Selection.SUS
+    protected Selection selection = Selection.TOURNAMENT;
+    protected Scaling scaling = Scaling.LINEAR;
+    protected int tournamentSize = 2;
+    protected double rankPressure = 1.5;        // s do ranking linear, em [1, 2]
+    protected double boltzmannTemperature = 0.1;
     protected boolean useUniformCrossover = false;
+    // filhos cujo fitness custa até crossoverDeltaLimit * chromosomeSize flips, contando os
+    // genes que os distinguem do pai mais próximo e as mutações esperadas, têm o fitness
+    // derivado do pai (offspringFitness) em vez de avaliado do zero; 0 desliga
+    protected double crossoverDeltaLimit = 1.0 / 16;
     protected boolean useAdaptiveMutation = false;
-    protected boolean useSteadyState = false;
+    protected boolean useSteadyState = false;   // atalho para Replacement.PLUS
+    protected Replacement replacement = Replacement.ELITIST;
+
+    // ==== Cache de fitness (hash de Zobrist) ====
+    protected boolean useFitnessCache = false;
+    protected int fitnessCacheCapacity = 1 << 16;
+    protected FitnessCache fitnessCache;
+    private ZobristHash zobrist;
+
+    // ==== Avaliação paralela da população ====
+    protected boolean useParallelEvaluation = false;
+    protected ForkJoinPool evaluationPool = ForkJoinPool.commonPool();
+    // nº máximo de cromossomos avaliados por tarefa indivisível
+    protected static final int EVALUATION_GRAIN = 4;
+
+    // ==== Instrumentação por geração e fase (JFR, histogramas, séries) ====
+    protected boolean useMetrics = false;
+    protected GAMetrics metrics;
+
+    // imprime cada novo incumbente
+    private boolean printIncumbents = verbose;
+
+    // ==== Critérios de parada e incumbente ====
+    protected Termination termination = new Termination();
+    private Termination.Reason stopReason;
+    // o Evaluator recusou avaliações por esgotar seu orçamento (EvaluationBudgetExceededException)
+    private boolean budgetExhausted;
+    private long startNanos;
+    private long evaluations;
+    private int lastImprovement;
+    private final List<IncumbentListener<F>> incumbentListeners = new CopyOnWriteArrayList<>();
+
+    // genes do incumbente (bestSol), que pode já não estar na população; salvos no checkpoint
+    private long[] incumbentWords = new long[0];
+
+    // ==== Checkpoint ====
+    private CheckpointWriter checkpointWriter;
+    private int checkpointInterval;
 
     // Para adaptive mutation
     protected int currentGeneration = 0;
 
     public abstract Solution<F> createEmptySol();
+    // chamado só para o incumbente; o custo da Solution pode vir do fitness memoizado
     protected abstract Solution<F> decode(Chromosome chromosome);
     protected abstract Chromosome generateRandomChromosome();
-    protected abstract Double fitness(Chromosome chromosome);
-    protected abstract void mutateGene(Chromosome chromosome, Integer locus);
+    // avalia o cromossomo sem montar uma Solution (ex.: BinaryEvaluator.evaluate(long[]))
+    protected abstract double fitness(Chromosome chromosome);
+
+    /**
+     * Avalia de uma vez os cromossomos de batch, guardando o fitness de
+     * batch.get(k) em values[k]. É chamado uma vez por geração, com os filhos
+     * ainda sem fitness e ausentes do cache. Por padrão chama fitness para
+     * cada um, dividindo o lote entre tarefas quando executado numa thread de
+     * ForkJoinPool; subclasses cujo fitness é BinaryEvaluator.evaluate(long[])
+     * podem repassar o lote a BinaryEvaluator.evaluate(long[][], int, double[]).
+     */
+    protected void fitness(List<Chromosome> batch, double[] values) {
+        if (ForkJoinTask.inForkJoinPool()) {
+            new EvaluationTask(batch, values, 0, batch.size()).invoke();
+            return;
+        }
+        for (int k = 0; k < batch.size(); k++) {
+            values[k] = fitness(batch.get(k));
+        }
+    }
+    protected abstract void mutateGene(Chromosome chromosome, int locus);
+
+    /**
+     * Aplica a mutação dos loci loci[0, count), em ordem crescente. Por padrão
+     * chama mutateGene para cada um; subclasses podem atualizar o fitness de
+     * uma vez a partir da lista de flips.
+     */
+    protected void mutateGenes(Chromosome chromosome, int[] loci, int count) {
+        for (int k = 0; k < count; k++) {
+            mutateGene(chromosome, loci[k]);
+        }
+    }
+
+    /**
+     * Fitness de um filho que difere do pai parent, já avaliado, exatamente
+     * nos loci loci[0, count), em ordem crescente; o pai não é alterado. Por
+     * padrão retorna NaN e o filho é avaliado do zero; subclasses cujo
+     * Evaluator calcula deltas de flips podem derivá-lo do fitness do pai.
+     */
+    protected double offspringFitness(Chromosome parent, int[] loci, int count) {
+        return Double.NaN;
+    }
+
+    /** Número de palavras de 64 bits de um cromossomo. */
+    protected int wordCount() {
+        return (chromosomeSize + 63) >>> 6;
+    }
+
+    /** Máscara dos genes válidos da última palavra de um cromossomo. */
+    protected long lastWordMask() {
+        return -1L >>> (-chromosomeSize & 63);
+    }
 
     public AbstractGA(Evaluator<F> objFunction, Integer generations, Integer popSize, Double mutationRate) {
         this.ObjFunction = objFunction;
@@ -51,26 +411,215 @@ public abstract class AbstractGA<G extends Number, F> {
         this.mutationRate = mutationRate;
     }
 
+    /**
+     * Executa o GA até que um critério de parada seja atingido: o limite de
+     * gerações ou um dos critérios de termination. Retorna o incumbente, que
+     * também é entregue aos IncumbentListeners a cada melhora. Se o Evaluator
+     * recusar uma avaliação com EvaluationBudgetExceededException, a geração
+     * em curso é descartada e o GA para com o motivo EVALUATIONS; o orçamento
+     * deve cobrir ao menos a população inicial, cuja recusa é propagada.
+     */
     public Solution<F> solve() {
-        Population population = initializePopulation();
+        initialize();
+        return evolve();
+    }
+
+    /**
+     * Continua a execução salva num checkpoint (ver setCheckpoint), com o GA
+     * configurado como na execução original. A trajetória é a mesma que a
+     * execução teria seguido sem a interrupção.
+     */
+    public Solution<F> resume(Path file) throws IOException {
+        restore(file);
+        return evolve();
+    }
+
+    private Solution<F> evolve() {
+        CheckpointWriter writer = checkpointWriter;
+        try {
+            while (!shouldStop()) {
+                nextGeneration();
+                if (writer != null && currentGeneration % checkpointInterval == 0) {
+                    writer.submit(checkpoint());
+                }
+            }
+        } finally {
+            if (writer != null) {
+                writer.await();
+            }
+        }
+        return bestSol;
+    }
+
+    /**
+     * Verifica os critérios de parada para o estado corrente; o motivo fica
+     * disponível em getStopReason(). Usado entre gerações por solve() e por
+     * quem conduz o GA com nextGeneration(), como IslandGA.
+     */
+    public boolean shouldStop() {
+        if (budgetExhausted) {
+            stopReason = Termination.Reason.EVALUATIONS;
+            return true;
+        }
+        stopReason = termination.check(currentGeneration, generations, getElapsedNanos(), evaluations,
+                currentGeneration - lastImprovement, bestSol.cost);
+        return stopReason != null;
+    }
+
+    /** Cria e avalia a população inicial (geração 0). */
+    public void initialize() {
+        currentGeneration = 0;
+        startNanos = System.nanoTime();
+        evaluations = 0;
+        stopReason = null;
+        budgetExhausted = false;
+        fitnessCache = useFitnessCache ? new FitnessCache(fitnessCacheCapacity, wordCount()) : null;
+        metrics = useMetrics ? new GAMetrics() : null;
+        population = initializePopulation();
+        parentBuffer = new Population();
+        offspringBuffer = new Population();
+        ensureOffspringStorage();
+        GAMetrics m = metrics;
+        long t = m != null ? m.begin(0) : 0L;
+        evaluatePopulation(population);
+        if (m != null) t = m.phase(GAMetrics.Phase.EVALUATION, t);
+        bestChromosome = getBestChromosome(population);
+        newIncumbent(bestChromosome);
+        if (m != null) endMetrics(m);
+    }
+
+    /**
+     * Executa uma geração a partir da população atual. Pais, filhos e
+     * sobreviventes usam os buffers da execução, de modo que após a primeira
+     * geração o laço não aloca cromossomos nem populações. Com useMetrics,
+     * cada fase é cronometrada em metrics; sem, o custo é um teste por fase.
+     */
+    public void nextGeneration() {
+        currentGeneration++;
+        GAMetrics m = metrics;
+        long t = m != null ? m.begin(currentGeneration) : 0L;
+        Population parents = selectParents(population);
+        if (m != null) t = m.phase(GAMetrics.Phase.SELECTION, t);
+        Population offsprings = crossover(parents);
+        if (m != null) t = m.phase(GAMetrics.Phase.CROSSOVER, t);
+        Population mutants = mutate(offsprings);
+        if (m != null) t = m.phase(GAMetrics.Phase.MUTATION, t);
+        try {
+            evaluatePopulation(mutants);
+        } catch (EvaluationBudgetExceededException e) {
+            // geração incompleta: a população e o incumbente seguem os da anterior
+            currentGeneration--;
+            budgetExhausted = true;
+            return;
+        }
+        if (m != null) t = m.phase(GAMetrics.Phase.EVALUATION, t);
+        population = selectPopulation(population, mutants);
         bestChromosome = getBestChromosome(population);
-        bestSol = decode(bestChromosome);
-        System.out.println("(Gen. " + 0 + ") BestSol = " + bestSol);
-
-        for (int g = 1; g <= generations; g++) {
-            currentGeneration = g;
-            Population parents = selectParents(population);
-            Population offsprings = crossover(parents);
-            Population mutants = mutate(offsprings);
-            Population newpopulation = selectPopulation(population, mutants);
-            population = newpopulation;
-            bestChromosome = getBestChromosome(population);
-            if (fitness(bestChromosome) > bestSol.cost) {
-                bestSol = decode(bestChromosome);
-                if (verbose)
-                    System.out.println("(Gen. " + g + ") BestSol = " + bestSol);
+        if (m != null) m.phase(GAMetrics.Phase.REPLACEMENT, t);
+        if (bestChromosome.getFitness() > bestSol.cost) {
+            newIncumbent(bestChromosome);
+        }
+        if (m != null) endMetrics(m);
+    }
+
+    /** Fecha a geração em metrics com o fitness melhor/médio/pior da população. */
+    private void endMetrics(GAMetrics m) {
+        double worst = Double.POSITIVE_INFINITY, sum = 0.0;
+        for (Chromosome c : population) {
+            worst = Math.min(worst, c.getFitness());
+            sum += c.getFitness();
+        }
+        m.end(bestChromosome.getFitness(), sum / population.size(), worst, evaluations, getElapsedNanos());
+    }
+
+    /** Liga ou desliga a impressão dos novos incumbentes deste GA, sem afetar os demais. */
+    public void setVerbose(boolean verbose) {
+        this.printIncumbents = verbose;
+    }
+
+    public boolean isVerbose() {
+        return printIncumbents;
+    }
+
+    /** Liga a instrumentação (useMetrics) a partir da próxima execução. */
+    public void setUseMetrics(boolean useMetrics) {
+        this.useMetrics = useMetrics;
+    }
+
+    /** Instrumentação da última execução, ou null se useMetrics for falso. */
+    public GAMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Torna o cromossomo o novo incumbente e avisa os listeners. */
+    private void newIncumbent(Chromosome chromosome) {
+        bestSol = decode(chromosome);
+        if (incumbentWords.length != wordCount()) {
+            incumbentWords = new long[wordCount()];
+        }
+        System.arraycopy(chromosome.words(), 0, incumbentWords, 0, incumbentWords.length);
+        lastImprovement = currentGeneration;
+        if (printIncumbents)
+            System.out.println("(Gen. " + currentGeneration + ") BestSol = " + bestSol);
+        if (!incumbentListeners.isEmpty()) {
+            long elapsed = getElapsedNanos();
+            for (IncumbentListener<F> listener : incumbentListeners) {
+                listener.newIncumbent(bestSol, currentGeneration, evaluations, elapsed);
             }
         }
+    }
+
+    public void addIncumbentListener(IncumbentListener<F> listener) {
+        incumbentListeners.add(listener);
+    }
+
+    public void removeIncumbentListener(IncumbentListener<F> listener) {
+        incumbentListeners.remove(listener);
+    }
+
+    public Termination getTermination() {
+        return termination;
+    }
+
+    /** Define os critérios de parada; podem ser compartilhados entre execuções. */
+    public void setTermination(Termination termination) {
+        this.termination = termination;
+    }
+
+    /** Motivo da última parada, ou null se a execução não terminou. */
+    public Termination.Reason getStopReason() {
+        return stopReason;
+    }
+
+    /** Avaliações completas da função objetivo desde initialize(). */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /** Tempo de relógio desde initialize(). */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /** Reinicia o gerador da execução; a mesma semente reproduz a mesma execução. */
+    public void setSeed(long seed) {
+        this.rng = new SplitMix64(seed);
+    }
+
+    /** Usa um fluxo aleatório fornecido, p.ex. obtido por SplitMix64.split(). */
+    public void setRandom(SplitMix64 rng) {
+        this.rng = rng;
+    }
+
+    public int getCurrentGeneration() {
+        return currentGeneration;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public Solution<F> getBestSolution() {
         return bestSol;
     }
 
@@ -86,7 +635,7 @@ public abstract class AbstractGA<G extends Number, F> {
         double bestFitness = Double.NEGATIVE_INFINITY;
         Chromosome bestChromosome = null;
         for (Chromosome c : population) {
-            double fitness = fitness(c);
+            double fitness = c.getFitness();
             if (fitness > bestFitness) {
                 bestFitness = fitness;
                 bestChromosome = c;
@@ -95,11 +644,50 @@ public abstract class AbstractGA<G extends Number, F> {
         return bestChromosome;
     }
 
+    /** Índice do cromossomo de menor fitness (o primeiro, em caso de empate). */
+    protected int getWorseIndex(Population population) {
+        double worseFitness = Double.POSITIVE_INFINITY;
+        int worse = -1;
+        for (int i = 0; i < population.size(); i++) {
+            double fitness = population.get(i).getFitness();
+            if (fitness < worseFitness) {
+                worseFitness = fitness;
+                worse = i;
+            }
+        }
+        return worse;
+    }
+
+    /** Tabela de Zobrist deste tamanho de cromossomo, criada no primeiro uso. */
+    protected ZobristHash zobrist() {
+        ZobristHash z = zobrist;
+        if (z == null) {
+            // corrida benigna: a semente fixa faz todas as tabelas iguais
+            zobrist = z = new ZobristHash(chromosomeSize);
+        }
+        return z;
+    }
+
+    /** Cache de fitness da execução, ou null se useFitnessCache for falso. */
+    public FitnessCache getFitnessCache() {
+        return fitnessCache;
+    }
+
+    /** Garante popSize cromossomos de armazenamento em offspringBuffer. */
+    protected void ensureOffspringStorage() {
+        if (offspringBuffer == null) {
+            offspringBuffer = new Population();
+        }
+        while (offspringBuffer.size() < popSize) {
+            offspringBuffer.add(new Chromosome());
+        }
+    }
+
     protected Chromosome getWorseChromosome(Population population) {
         double worseFitness = Double.POSITIVE_INFINITY;
         Chromosome worseChromosome = null;
         for (Chromosome c : population) {
-            double fitness = fitness(c);
+            double fitness = c.getFitness();
             if (fitness < worseFitness) {
                 worseFitness = fitness;
                 worseChromosome = c;
@@ -108,146 +696,734 @@ public abstract class AbstractGA<G extends Number, F> {
         return worseChromosome;
     }
 
-    // ===== Seleção de pais =====
-    protected Population selectParents(Population population) {
-        if (useSUS) {
-            return stochasticUniversalSelection(population);
-        }
-
-        // Torneio binário padrão
-        Population parents = new Population();
-        while (parents.size() < popSize) {
-            int index1 = rng.nextInt(popSize);
-            Chromosome parent1 = population.get(index1);
-            int index2 = rng.nextInt(popSize);
-            Chromosome parent2 = population.get(index2);
-            if (fitness(parent1) > fitness(parent2)) {
-                parents.add(parent1);
+    // ===== Avaliação =====
+    /**
+     * Garante que todos os cromossomos da população tenham fitness calculado.
+     * Os que não estão avaliados nem no cache são passados juntos, como um
+     * lote, a fitness(List, double[]). Com useParallelEvaluation, o lote é
+     * avaliado dentro de evaluationPool, onde pode ser dividido em tarefas;
+     * para isso o Evaluator precisa suportar chamadas concorrentes.
+     */
+    protected void evaluatePopulation(Population population) {
+        pending.clear();
+        for (Chromosome c : population) {
+            if (!c.isEvaluated() && !c.fromCache()) {
+                pending.add(c);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (pendingFitness.length < pending.size()) {
+            pendingFitness = new double[pending.size()];
+        }
+        try {
+            if (useParallelEvaluation) {
+                evaluationPool.invoke(ForkJoinTask.adapt(() -> fitness(pending, pendingFitness)));
             } else {
-                parents.add(parent2);
+                fitness(pending, pendingFitness);
+            }
+            for (int k = 0; k < pending.size(); k++) {
+                pending.get(k).store(pendingFitness[k]);
+            }
+            evaluations += pending.size();
+        } finally {
+            // também se a avaliação falhar, p.ex. por orçamento esgotado: o lote é descartado inteiro
+            pending.clear();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class EvaluationTask extends RecursiveAction {
+
+        private final List<Chromosome> chromosomes;
+        private final double[] values;
+        private final int from, to;
+
+        EvaluationTask(List<Chromosome> chromosomes, double[] values, int from, int to) {
+            this.chromosomes = chromosomes;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= EVALUATION_GRAIN) {
+                for (int i = from; i < to; i++) {
+                    values[i] = fitness(chromosomes.get(i));
+                }
+                return;
             }
+            int mid = (from + to) >>> 1;
+            invokeAll(new EvaluationTask(chromosomes, values, from, mid),
+                    new EvaluationTask(chromosomes, values, mid, to));
         }
-        return parents;
     }
 
-    private Population stochasticUniversalSelection(Population population) {
-        Population parents = new Population();
-        double totalFitness = 0.0;
+    // ===== Checkpoint =====
+    private static final int CHECKPOINT_MAGIC = 0x47414350; // "GACP"
+    private static final int CHECKPOINT_VERSION = 1;
+
+    /**
+     * Grava um checkpoint em file a cada interval gerações de solve() ou
+     * resume(), numa thread à parte (ver CheckpointWriter); file nulo
+     * desliga os checkpoints. Execuções conduzidas por nextGeneration(), como
+     * as ilhas de IslandGA, não gravam checkpoints.
+     */
+    public void setCheckpoint(Path file, int interval) {
+        if (file != null && interval < 1) {
+            throw new IllegalArgumentException("Intervalo de checkpoint deve ser positivo: " + interval);
+        }
+        this.checkpointWriter = file == null ? null : new CheckpointWriter(file);
+        this.checkpointInterval = interval;
+    }
+
+    /**
+     * Estado completo da execução num vetor de bytes: geração, contadores,
+     * estado do gerador, incumbente e população, com os cromossomos
+     * compactados em bits e o fitness memorizado. O cache de fitness e as
+     * métricas não são salvos: após a retomada, o cache começa vazio, o que
+     * só altera a contagem de avaliações, não a trajetória.
+     */
+    public byte[] checkpoint() {
+        int words = wordCount();
+        int size = 4 * 7 + 8 * 5 + 8 * words + population.size() * (9 + 8 * words);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(CHECKPOINT_MAGIC).putInt(CHECKPOINT_VERSION);
+        buffer.putInt(chromosomeSize).putInt(population.size());
+        buffer.putInt(currentGeneration).putInt(lastImprovement);
+        buffer.putLong(evaluations).putLong(getElapsedNanos());
+        buffer.putLong(rng.state()).putLong(rng.gamma());
+        buffer.putInt(indexOf(population, bestChromosome));
+        buffer.putDouble(bestSol.cost);
+        for (int w = 0; w < words; w++) {
+            buffer.putLong(incumbentWords[w]);
+        }
         for (Chromosome c : population) {
-            totalFitness += fitness(c);
+            buffer.putDouble(c.fitness).put((byte) (c.evaluated ? 1 : 0));
+            for (long word : c.words) {
+                buffer.putLong(word);
+            }
         }
+        return buffer.array();
+    }
 
-        double distance = totalFitness / popSize;
-        double start = rng.nextDouble() * distance;
-        double[] pointers = new double[popSize];
-        for (int i = 0; i < popSize; i++) {
-            pointers[i] = start + i * distance;
+    /** Restaura o estado de um checkpoint gravado em arquivo; ver restore(byte[]). */
+    public void restore(Path file) throws IOException {
+        try {
+            restore(Files.readAllBytes(file));
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new IOException("Checkpoint inválido: " + file, e);
+        }
+    }
+
+    /**
+     * Restaura o estado produzido por checkpoint(), no lugar de initialize().
+     * O GA deve ter a mesma configuração da execução salva (problema,
+     * tamanho da população, operadores e parâmetros).
+     */
+    public void restore(byte[] checkpoint) {
+        ByteBuffer buffer = ByteBuffer.wrap(checkpoint);
+        if (buffer.getInt() != CHECKPOINT_MAGIC || buffer.getInt() != CHECKPOINT_VERSION) {
+            throw new IllegalArgumentException("Formato de checkpoint desconhecido");
+        }
+        int size = buffer.getInt(), count = buffer.getInt();
+        if (size != chromosomeSize || count != popSize) {
+            throw new IllegalArgumentException("Checkpoint de cromossomos " + size + " e população " + count
+                    + ", esperado " + chromosomeSize + " e " + popSize);
+        }
+        currentGeneration = buffer.getInt();
+        lastImprovement = buffer.getInt();
+        evaluations = buffer.getLong();
+        startNanos = System.nanoTime() - buffer.getLong();
+        rng = SplitMix64.restore(buffer.getLong(), buffer.getLong());
+        int best = buffer.getInt();
+        Chromosome incumbent = new Chromosome();
+        incumbent.setFitness(buffer.getDouble());
+        for (int w = 0; w < incumbent.words.length; w++) {
+            incumbent.words[w] = buffer.getLong();
+        }
+        population = new Population();
+        for (int i = 0; i < count; i++) {
+            Chromosome c = new Chromosome();
+            c.fitness = buffer.getDouble();
+            c.evaluated = buffer.get() != 0;
+            for (int w = 0; w < c.words.length; w++) {
+                c.words[w] = buffer.getLong();
+            }
+            population.add(c);
+        }
+        if (best < 0 || best >= count) {
+            throw new IllegalArgumentException("Índice do melhor cromossomo inválido: " + best);
+        }
+        stopReason = null;
+        budgetExhausted = false;
+        fitnessCache = useFitnessCache ? new FitnessCache(fitnessCacheCapacity, wordCount()) : null;
+        metrics = useMetrics ? new GAMetrics() : null;
+        parentBuffer = new Population();
+        offspringBuffer = new Population();
+        ensureOffspringStorage();
+        bestChromosome = population.get(best);
+        bestSol = decode(incumbent);
+        incumbentWords = incumbent.words.clone();
+    }
+
+    // ===== Migração (modelo de ilhas) =====
+    /** Cópias dos count melhores cromossomos da população atual. */
+    public List<Chromosome> selectEmigrants(int count) {
+        Population sorted = new Population();
+        sorted.addAll(population);
+        sorted.sort((c1, c2) -> Double.compare(c2.getFitness(), c1.getFitness()));
+        List<Chromosome> emigrants = new ArrayList<>(count);
+        for (int i = 0; i < count && i < sorted.size(); i++) {
+            emigrants.add(new Chromosome(sorted.get(i)));
+        }
+        return emigrants;
+    }
+
+    /**
+     * Recebe um cromossomo de outra população, já avaliado, no lugar do pior
+     * cromossomo da população atual, se o imigrante for melhor que ele.
+     *
+     * @return true se o imigrante foi aceito.
+     */
+    public boolean immigrate(long[] words, double fitness) {
+        if (words.length != wordCount()) {
+            throw new IllegalArgumentException("Imigrante com " + words.length + " palavras, esperado " + wordCount());
+        }
+        int worse = getWorseIndex(population);
+        if (fitness <= population.get(worse).getFitness()) {
+            return false;
+        }
+        // o imigrante é escrito sobre o armazenamento do pior
+        Chromosome immigrant = population.get(worse);
+        System.arraycopy(words, 0, immigrant.words(), 0, words.length);
+        immigrant.invalidateFitness();
+        immigrant.setFitness(fitness);
+        if (fitness > bestSol.cost) {
+            bestChromosome = immigrant;
+            newIncumbent(immigrant);
+        }
+        return true;
+    }
+
+    // ===== Seleção de pais =====
+    /** Estratégia efetiva: useSUS equivale a Selection.SUS. */
+    protected Selection selection() {
+        return useSUS ? Selection.SUS : selection;
+    }
+
+    /**
+     * Preenche parentBuffer com popSize referências aos pais escolhidos (sem
+     * cópias). O fitness da população é lido uma única vez, para um vetor
+     * primitivo; as estratégias proporcionais trabalham sobre somas prefixas
+     * de pesos não negativos, derivados do fitness por scaling, e por isso
+     * funcionam com fitness negativo, como o do SCQBF penalizado.
+     */
+    protected Population selectParents(Population population) {
+        if (parentBuffer == null) {
+            parentBuffer = new Population();
+        }
+        parentBuffer.clear();
+        int size = population.size();
+        if (selectionFitness.length < size) {
+            selectionFitness = new double[size];
+            selectionPrefix = new double[size];
+            selectionSorted = new double[size];
+        }
+        for (int i = 0; i < size; i++) {
+            selectionFitness[i] = population.get(i).getFitness();
+        }
+
+        switch (selection()) {
+            case SUS:
+                stochasticUniversalSelection(population, prefixSums(size, false));
+                break;
+            case ROULETTE:
+                rouletteSelection(population, prefixSums(size, false));
+                break;
+            case BOLTZMANN:
+                rouletteSelection(population, prefixSums(size, true));
+                break;
+            default:
+                tournamentSelection(population);
+        }
+        return parentBuffer;
+    }
+
+    /** Torneio: o melhor de tournamentSize sorteios; nos empates vence o último sorteado. */
+    private void tournamentSelection(Population population) {
+        int size = population.size();
+        while (parentBuffer.size() < popSize) {
+            int winner = rng.nextInt(size);
+            for (int t = 1; t < tournamentSize; t++) {
+                int challenger = rng.nextInt(size);
+                if (!(selectionFitness[winner] > selectionFitness[challenger])) {
+                    winner = challenger;
+                }
+            }
+            parentBuffer.add(population.get(winner));
+        }
+    }
+
+    /**
+     * Preenche selectionPrefix com as somas prefixas dos pesos de seleção e
+     * retorna o total, sempre positivo. Se todos os fitness forem iguais, a
+     * seleção é uniforme.
+     */
+    private double prefixSums(int size, boolean boltzmann) {
+        double[] f = selectionFitness, prefix = selectionPrefix;
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, f[i]);
+            max = Math.max(max, f[i]);
+        }
+        double spread = max - min;
+        if (!(spread > 0.0)) {
+            for (int i = 0; i < size; i++) {
+                prefix[i] = i + 1;
+            }
+            return size;
         }
 
-        int index = 0;
         double sum = 0.0;
-        for (Chromosome c : population) {
-            sum += fitness(c);
-            while (index < popSize && sum >= pointers[index]) {
-                parents.add(c);
-                index++;
+        if (boltzmann) {
+            double temperature = boltzmannTemperature * spread;
+            for (int i = 0; i < size; i++) {
+                sum += Math.exp((f[i] - max) / temperature);
+                prefix[i] = sum;
+            }
+        } else if (scaling == Scaling.RANK) {
+            System.arraycopy(f, 0, selectionSorted, 0, size);
+            Arrays.sort(selectionSorted, 0, size);
+            for (int i = 0; i < size; i++) {
+                // empates recebem a mesma posição (a primeira do valor na ordem crescente)
+                int rank = lowerBound(selectionSorted, size, f[i]);
+                sum += (2.0 - rankPressure) + 2.0 * (rankPressure - 1.0) * rank / (size - 1);
+                prefix[i] = sum;
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                sum += f[i] - min;
+                prefix[i] = sum;
+            }
+        }
+        return sum;
+    }
+
+    /** Primeira posição de sorted[0, size) com valor >= value. */
+    private static int lowerBound(double[] sorted, int size, double value) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Índice sorteado pela roleta: o primeiro i com selectionPrefix[i] > u. */
+    private int spin(double u, int size) {
+        int lo = 0, hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (selectionPrefix[mid] > u) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private void rouletteSelection(Population population, double total) {
+        int size = population.size();
+        while (parentBuffer.size() < popSize) {
+            parentBuffer.add(population.get(spin(rng.nextDouble() * total, size)));
+        }
+    }
+
+    /**
+     * SUS: popSize ponteiros igualmente espaçados sobre as somas prefixas,
+     * percorridas uma única vez. Os pais saem agrupados por indivíduo e são
+     * embaralhados para que os pares do crossover não sejam cópias vizinhas.
+     */
+    private void stochasticUniversalSelection(Population population, double total) {
+        int size = population.size();
+        double distance = total / popSize;
+        double start = rng.nextDouble() * distance;
+
+        // o ponteiro k fica em start + k * distance
+        int i = 0;
+        for (int k = 0; k < popSize; k++) {
+            double pointer = start + k * distance;
+            while (i < size - 1 && selectionPrefix[i] <= pointer) {
+                i++;
             }
+            parentBuffer.add(population.get(i));
+        }
+        for (int k = parentBuffer.size() - 1; k > 0; k--) {
+            Collections.swap(parentBuffer, k, rng.nextInt(k + 1));
         }
-        return parents;
     }
 
     // ===== Crossover =====
+    /** Escreve os filhos sobre o armazenamento de offspringBuffer e o retorna. */
     protected Population crossover(Population parents) {
+        ensureOffspringStorage();
+        if (crossoverDiff.length != wordCount()) {
+            crossoverDiff = new long[wordCount()];
+            crossoverLoci = new int[chromosomeSize];
+        }
         if (useUniformCrossover) {
             return uniformCrossover(parents);
         }
 
         // Crossover de 2 pontos (padrão)
-        Population offsprings = new Population();
+        Population offsprings = offspringBuffer;
         for (int i = 0; i < popSize; i = i + 2) {
             Chromosome parent1 = parents.get(i);
             Chromosome parent2 = parents.get(i + 1);
             int crosspoint1 = rng.nextInt(chromosomeSize + 1);
             int crosspoint2 = crosspoint1 + rng.nextInt((chromosomeSize + 1) - crosspoint1);
-            Chromosome offspring1 = new Chromosome();
-            Chromosome offspring2 = new Chromosome();
-            for (int j = 0; j < chromosomeSize; j++) {
-                if (j >= crosspoint1 && j < crosspoint2) {
-                    offspring1.add(parent2.get(j));
-                    offspring2.add(parent1.get(j));
-                } else {
-                    offspring1.add(parent1.get(j));
-                    offspring2.add(parent2.get(j));
+            Chromosome offspring1 = offsprings.get(i);
+            Chromosome offspring2 = offsprings.get(i + 1);
+            offspring1.copyFrom(parent1);
+            offspring2.copyFrom(parent2);
+            if (crosspoint1 < crosspoint2) {
+                long[] w1 = offspring1.words(), w2 = offspring2.words();
+                long[] diffs = crossoverDiff;
+                Arrays.fill(diffs, 0L);
+                int swapped = 0;
+                // troca os genes em [crosspoint1, crosspoint2) palavra a palavra
+                for (int w = crosspoint1 >>> 6; w <= (crosspoint2 - 1) >>> 6; w++) {
+                    long diff = (w1[w] ^ w2[w]) & segmentMask(w, crosspoint1, crosspoint2);
+                    if (diff != 0L) {
+                        offspring1.xorWord(w, diff);
+                        offspring2.xorWord(w, diff);
+                        diffs[w] = diff;
+                        swapped += Long.bitCount(diff);
+                    }
+                }
+                // filhos idênticos aos pais herdam o fitness já calculado
+                if (swapped != 0) {
+                    // o hash já foi atualizado por xorWord
+                    inheritFitness(parent1, parent2, offspring1, offspring2, swapped);
                 }
             }
-            offsprings.add(offspring1);
-            offsprings.add(offspring2);
         }
         return offsprings;
     }
 
+    /** Máscara dos genes da palavra w que pertencem ao intervalo [from, to). */
+    protected static long segmentMask(int w, int from, int to) {
+        int lo = Math.max(from - (w << 6), 0);
+        int hi = Math.min(to - (w << 6), 64);
+        if (lo >= hi) {
+            return 0L;
+        }
+        return (-1L >>> (64 - (hi - lo))) << lo;
+    }
+
     private Population uniformCrossover(Population parents) {
-        Population offsprings = new Population();
+        Population offsprings = offspringBuffer;
         for (int i = 0; i < popSize; i = i + 2) {
             Chromosome parent1 = parents.get(i);
             Chromosome parent2 = parents.get(i + 1);
-            Chromosome offspring1 = new Chromosome();
-            Chromosome offspring2 = new Chromosome();
-            for (int j = 0; j < chromosomeSize; j++) {
-                if (rng.nextBoolean()) {
-                    offspring1.add(parent1.get(j));
-                    offspring2.add(parent2.get(j));
-                } else {
-                    offspring1.add(parent2.get(j));
-                    offspring2.add(parent1.get(j));
+            Chromosome offspring1 = offsprings.get(i);
+            Chromosome offspring2 = offsprings.get(i + 1);
+            offspring1.copyFrom(parent1);
+            offspring2.copyFrom(parent2);
+            long[] w1 = offspring1.words(), w2 = offspring2.words();
+            long[] diffs = crossoverDiff;
+            int swapped = 0;
+            // cada bit da máscara aleatória decide de qual pai vem o gene
+            for (int w = 0; w < w1.length; w++) {
+                long diff = (w1[w] ^ w2[w]) & rng.nextLong();
+                diffs[w] = diff;
+                if (diff != 0L) {
+                    offspring1.xorWord(w, diff);
+                    offspring2.xorWord(w, diff);
+                    swapped += Long.bitCount(diff);
                 }
             }
-            offsprings.add(offspring1);
-            offsprings.add(offspring2);
+            if (swapped != 0) {
+                inheritFitness(parent1, parent2, offspring1, offspring2, swapped);
+            }
         }
         return offsprings;
     }
 
+    /**
+     * Define o fitness dos filhos de um par cujos genes de crossoverDiff, em
+     * número swapped, foram trocados entre eles. Cada filho difere do próprio
+     * pai nesses swapped genes e do outro pai nos distance - swapped genes
+     * restantes em que os pais diferem, e os dois filhos ficam à mesma
+     * distância do pai mais próximo, com os mesmos loci. Um filho avaliado
+     * paga também os deltas das suas mutações; se essa distância mais as
+     * mutações esperadas não passa de crossoverDeltaLimit * chromosomeSize
+     * flips, o fitness de cada filho é derivado do pai mais próximo por
+     * offspringFitness, com custo proporcional à diversidade do par em vez
+     * de uma avaliação completa; senão, ou se offspringFitness não souber
+     * derivá-lo, o filho fica para a avaliação em lote.
+     */
+    private void inheritFitness(Chromosome parent1, Chromosome parent2,
+                                Chromosome offspring1, Chromosome offspring2, int swapped) {
+        offspring1.evaluated = false;
+        offspring2.evaluated = false;
+        if (!parent1.evaluated || !parent2.evaluated) {
+            return;
+        }
+        long[] p1 = parent1.words, p2 = parent2.words, diffs = crossoverDiff;
+        int distance = 0;
+        for (int w = 0; w < p1.length; w++) {
+            distance += Long.bitCount(p1[w] ^ p2[w]);
+        }
+        boolean ownParent = swapped <= distance - swapped;
+        int count = ownParent ? swapped : distance - swapped;
+        if (count + effectiveMutationRate() * chromosomeSize > crossoverDeltaLimit * chromosomeSize) {
+            return;
+        }
+        Chromosome base1 = ownParent ? parent1 : parent2;
+        Chromosome base2 = ownParent ? parent2 : parent1;
+        if (count == 0) {
+            // cada filho é cópia do outro pai
+            offspring1.setFitness(base1.fitness);
+            offspring2.setFitness(base2.fitness);
+            return;
+        }
+        int[] loci = crossoverLoci;
+        int k = 0;
+        for (int w = 0; w < p1.length; w++) {
+            long bits = ownParent ? diffs[w] : (p1[w] ^ p2[w]) & ~diffs[w];
+            while (bits != 0L) {
+                loci[k++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        double fitness1 = offspringFitness(base1, loci, count);
+        if (!Double.isNaN(fitness1)) {
+            offspring1.setFitness(fitness1);
+        }
+        double fitness2 = offspringFitness(base2, loci, count);
+        if (!Double.isNaN(fitness2)) {
+            offspring2.setFitness(fitness2);
+        }
+    }
+
     // ===== Mutação =====
     protected Population mutate(Population offsprings) {
-        double effectiveRate = mutationRate;
+        double effectiveRate = effectiveMutationRate();
+
+        if (mutationLoci.length < chromosomeSize) {
+            mutationLoci = new int[chromosomeSize];
+        }
+        double logComplement = Math.log1p(-Math.min(effectiveRate, 1.0));
+        for (Chromosome c : offsprings) {
+            int count = sampleMutationLoci(effectiveRate, logComplement);
+            if (count > 0) {
+                mutateGenes(c, mutationLoci, count);
+            }
+        }
+        return offsprings;
+    }
+
+    /** Taxa de mutação da geração corrente. */
+    protected double effectiveMutationRate() {
         if (useAdaptiveMutation) {
             // exemplo simples: aumenta taxa ao longo das gerações
-            effectiveRate = mutationRate * (1.0 + (double) currentGeneration / generations);
+            return mutationRate * (1.0 + (double) currentGeneration / generations);
         }
+        return mutationRate;
+    }
 
-        for (Chromosome c : offsprings) {
+    /**
+     * Sorteia em mutationLoci os loci de um cromossomo que sofrem mutação,
+     * cada um com probabilidade rate. Em vez de um sorteio por locus, salta
+     * direto para o próximo locus mutado: a distância entre mutações segue
+     * uma distribuição geométrica, amostrada por floor(log(U) / log(1 - rate)).
+     * O custo é proporcional ao número de mutações, e não a chromosomeSize.
+     *
+     * @return o número de loci sorteados.
+     */
+    private int sampleMutationLoci(double rate, double logComplement) {
+        if (rate <= 0.0) {
+            return 0;
+        }
+        if (rate >= 1.0) {
             for (int locus = 0; locus < chromosomeSize; locus++) {
-                if (rng.nextDouble() < effectiveRate) {
-                    mutateGene(c, locus);
-                }
+                mutationLoci[locus] = locus;
             }
+            return chromosomeSize;
+        }
+        int count = 0;
+        int locus = -1;
+        while (true) {
+            // U em (0, 1], para que log(U) seja finito
+            double skip = Math.floor(Math.log(1.0 - rng.nextDouble()) / logComplement);
+            if (skip >= chromosomeSize - 1 - locus) {
+                return count;
+            }
+            locus += (int) skip + 1;
+            mutationLoci[count++] = locus;
         }
-        return offsprings;
     }
 
     // ===== Seleção da nova população =====
+    /** Estratégia efetiva: useSteadyState equivale a Replacement.PLUS. */
+    protected Replacement replacement() {
+        return useSteadyState ? Replacement.PLUS : replacement;
+    }
+
+    /**
+     * Retorna a nova população, formada por cromossomos de oldPop e
+     * offsprings, e deixa em offspringBuffer os descartados, que servirão de
+     * armazenamento para os filhos da próxima geração. Só referências são
+     * movidas entre as duas listas.
+     */
     protected Population selectPopulation(Population oldPop, Population offsprings) {
-        if (useSteadyState) {
-            // mantém os melhores da união pais + filhos
-            Population combined = new Population();
-            combined.addAll(oldPop);
-            combined.addAll(offsprings);
-            // ordena por fitness
-            combined.sort((c1, c2) -> Double.compare(fitness(c2), fitness(c1)));
-            Population newPop = new Population();
-            for (int i = 0; i < popSize; i++) {
-                newPop.add(combined.get(i));
-            }
-            return newPop;
-        }
-
-        // elitismo padrão: mantém melhor
-        Chromosome worse = getWorseChromosome(offsprings);
-        if (fitness(worse) < fitness(bestChromosome)) {
-            offsprings.remove(worse);
-            offsprings.add(bestChromosome);
+        switch (replacement()) {
+            case PLUS:
+                return truncate(oldPop, offsprings, true, false);
+            case COMMA:
+                return truncate(oldPop, offsprings, false, false);
+            case TRUNCATION_UNIQUE:
+                return truncate(oldPop, offsprings, true, true);
+            default:
+                break;
+        }
+
+        // elitismo padrão: mantém o melhor no lugar do pior filho, por índice
+        offspringBuffer = oldPop;
+        int worse = getWorseIndex(offsprings);
+        if (offsprings.get(worse).getFitness() < bestChromosome.getFitness()) {
+            Chromosome removed = offsprings.remove(worse);
+            int best = indexOf(oldPop, bestChromosome);
+            if (best >= 0) {
+                // o melhor passa para a nova população e o pior filho ocupa seu lugar no buffer
+                offsprings.add(bestChromosome);
+                oldPop.set(best, removed);
+            } else {
+                removed.copyFrom(bestChromosome);
+                offsprings.add(removed);
+            }
         }
         return offsprings;
     }
+
+    /**
+     * Seleção por truncamento: escolhe os oldPop.size() melhores candidatos
+     * por seleção parcial (quickselect) sobre o vetor de fitness, sem ordenar.
+     * Os candidatos são pais e filhos, ou só os filhos se withParents for
+     * falso; com unique, cromossomos repetidos só entram se faltarem
+     * candidatos distintos. A nova população (não ordenada) fica em oldPop e
+     * os demais cromossomos em offsprings, que passa a ser o buffer de filhos.
+     */
+    private Population truncate(Population oldPop, Population offsprings, boolean withParents, boolean unique) {
+        int mu = oldPop.size();
+        int total = mu + offsprings.size();
+        candidates.clear();
+        for (Chromosome c : oldPop) {
+            candidates.add(c);
+        }
+        for (Chromosome c : offsprings) {
+            candidates.add(c);
+        }
+        if (candidateFitness.length < total) {
+            candidateFitness = new double[total];
+            candidateOrder = new int[total];
+        }
+        for (int i = 0; i < total; i++) {
+            candidateFitness[i] = candidates.get(i).getFitness();
+        }
+        // candidatos elegíveis em order[0, eligible); no modo (μ,λ) os pais ficam no fim
+        int eligible = withParents ? total : offsprings.size();
+        for (int i = 0; i < total; i++) {
+            candidateOrder[i] = withParents ? i : (i + mu) % total;
+        }
+
+        if (unique) {
+            int distinct = moveDistinctFirst(eligible);
+            if (distinct >= mu) {
+                PartialSelection.selectTop(candidateFitness, candidateOrder, 0, distinct, mu);
+            } else {
+                PartialSelection.selectTop(candidateFitness, candidateOrder, distinct, eligible, mu - distinct);
+            }
+        } else {
+            PartialSelection.selectTop(candidateFitness, candidateOrder, 0, eligible, mu);
+        }
+
+        for (int i = 0; i < mu; i++) {
+            oldPop.set(i, candidates.get(candidateOrder[i]));
+        }
+        for (int i = mu; i < total; i++) {
+            offsprings.set(i - mu, candidates.get(candidateOrder[i]));
+        }
+        candidates.clear();
+        offspringBuffer = offsprings;
+        return oldPop;
+    }
+
+    /**
+     * Reordena candidateOrder[0, count) deixando primeiro a primeira
+     * ocorrência de cada cromossomo distinto e depois os repetidos. Usa uma
+     * tabela de espalhamento sobre as palavras, conferindo os genes em cada
+     * colisão.
+     *
+     * @return o número de cromossomos distintos.
+     */
+    private int moveDistinctFirst(int count) {
+        int capacity = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+        if (uniqueTable.length < capacity) {
+            uniqueTable = new int[capacity];
+            duplicates = new int[capacity];
+        }
+        int mask = capacity - 1;
+        Arrays.fill(uniqueTable, 0, capacity, -1);
+        int distinct = 0, repeated = 0;
+        for (int i = 0; i < count; i++) {
+            int candidate = candidateOrder[i];
+            long[] words = candidates.get(candidate).words();
+            int slot = (int) wordsHash(words) & mask;
+            boolean seen = false;
+            while (uniqueTable[slot] >= 0) {
+                if (Arrays.equals(words, candidates.get(uniqueTable[slot]).words())) {
+                    seen = true;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (seen) {
+                duplicates[repeated++] = candidate;
+            } else {
+                uniqueTable[slot] = candidate;
+                candidateOrder[distinct++] = candidate;
+            }
+        }
+        System.arraycopy(duplicates, 0, candidateOrder, distinct, repeated);
+        return distinct;
+    }
+
+    private static long wordsHash(long[] words) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (long w : words) {
+            h = (h ^ w) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return h;
+    }
+
+    /** Posição de c na população, por identidade, ou -1. */
+    private static int indexOf(List<? extends AbstractGA<?>.Chromosome> population, AbstractGA<?>.Chromosome c) {
+        for (int i = 0; i < population.size(); i++) {
+            if (population.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,100 @@
+package metaheuristics.ga;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Grava os checkpoints de AbstractGA numa thread própria, para que o laço de
+ * gerações só pague a cópia do estado para um vetor de bytes. Cada gravação
+ * escreve um arquivo temporário, força-o para o disco e o renomeia
+ * atomicamente sobre o arquivo de destino, que assim sempre contém um
+ * checkpoint completo. Se a gravação anterior ainda não terminou, o novo
+ * checkpoint é descartado em vez de enfileirado. Uma falha de gravação é
+ * relançada (UncheckedIOException) no envio seguinte ou em await().
+ */
+final class CheckpointWriter {
+
+    private final Path file;
+    private final Path temporary;
+    private ExecutorService executor;
+    private Future<?> pending;
+
+    CheckpointWriter(Path file) {
+        this.file = file;
+        this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    /** Agenda a gravação do checkpoint; retorna falso se ele foi descartado. */
+    boolean submit(byte[] checkpoint) {
+        if (pending != null) {
+            if (!pending.isDone()) {
+                return false;
+            }
+            finish();
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "ga-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pending = executor.submit(() -> {
+            write(checkpoint);
+            return null;
+        });
+        return true;
+    }
+
+    private void write(byte[] checkpoint) throws IOException {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(checkpoint);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Espera a gravação pendente e encerra a thread de gravação. */
+    void await() {
+        try {
+            if (pending != null) {
+                finish();
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
+    private void finish() {
+        Future<?> done = pending;
+        pending = null;
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Gravação de checkpoint interrompida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException
+                    ? new UncheckedIOException("Falha ao gravar checkpoint em " + file, (IOException) cause)
+                    : new IllegalStateException("Falha ao gravar checkpoint em " + file, cause);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package metaheuristics.ga;
+
+import java.util.Arrays;
+
+/**
+ * Cache limitado de fitness por cromossomo, indexado pelo hash de Zobrist.
+ * A tabela usa apenas vetores primitivos, em endereçamento aberto por
+ * conjuntos: o hash escolhe um conjunto de WAYS posições consecutivas, onde a
+ * busca é feita; quando o conjunto está cheio, a posição a descartar é
+ * escolhida pelo algoritmo CLOCK (segunda chance), que aproxima o LRU com um
+ * bit de referência por posição. Cada entrada guarda também os genes, que
+ * são comparados em todo acerto, de modo que colisões de hash nunca
+ * devolvem o fitness de outro cromossomo.
+ *
+ * Os métodos são sincronizados, para uso pela avaliação paralela; o custo de
+ * uma consulta é O(palavras), desprezível frente a uma avaliação.
+ */
+public final class FitnessCache {
+
+    /** Posições por conjunto. */
+    public static final int WAYS = 4;
+
+    private final int wordCount;
+    private final int setMask;
+    private final long[] keys;
+    private final double[] values;
+    private final long[] genes;
+    private final boolean[] used;
+    private final boolean[] referenced;
+    private final byte[] hands;
+
+    private long lookups, hits, insertions, evictions;
+
+    /**
+     * @param capacity  nº máximo de entradas, arredondado para uma potência de 2 (mínimo WAYS)
+     * @param wordCount nº de palavras de 64 bits de cada cromossomo
+     */
+    public FitnessCache(int capacity, int wordCount) {
+        int sets = Integer.highestOneBit(Math.max(capacity, WAYS) - 1) << 1;
+        sets = Math.max(1, sets / WAYS);
+        this.wordCount = wordCount;
+        this.setMask = sets - 1;
+        int slots = sets * WAYS;
+        keys = new long[slots];
+        values = new double[slots];
+        genes = new long[slots * wordCount];
+        used = new boolean[slots];
+        referenced = new boolean[slots];
+        hands = new byte[sets];
+    }
+
+    /** Número máximo de entradas. */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Procura o fitness de um cromossomo.
+     *
+     * @return o fitness guardado, ou NaN se o cromossomo não estiver no cache.
+     */
+    public synchronized double get(long hash, long[] words) {
+        lookups++;
+        int slot = find(hash, words);
+        if (slot < 0) {
+            return Double.NaN;
+        }
+        hits++;
+        referenced[slot] = true;
+        return values[slot];
+    }
+
+    /** Guarda o fitness de um cromossomo, descartando uma entrada antiga se preciso. */
+    public synchronized void put(long hash, long[] words, double fitness) {
+        int slot = find(hash, words);
+        if (slot < 0) {
+            slot = victim(hash);
+            if (used[slot]) {
+                evictions++;
+            }
+            insertions++;
+            used[slot] = true;
+            keys[slot] = hash;
+            System.arraycopy(words, 0, genes, slot * wordCount, wordCount);
+        }
+        values[slot] = fitness;
+        referenced[slot] = true;
+    }
+
+    private int find(long hash, long[] words) {
+        int first = setOf(hash) * WAYS;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (used[slot] && keys[slot] == hash && sameGenes(slot, words)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean sameGenes(int slot, long[] words) {
+        int base = slot * wordCount;
+        return Arrays.equals(genes, base, base + wordCount, words, 0, wordCount);
+    }
+
+    /** Posição livre do conjunto, ou a escolhida pelo ponteiro do CLOCK. */
+    private int victim(long hash) {
+        int set = setOf(hash);
+        int first = set * WAYS;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (!used[slot]) {
+                return slot;
+            }
+        }
+        // segunda chance: limpa bits de referência até achar um zerado (no máximo duas voltas)
+        while (true) {
+            int slot = first + hands[set];
+            hands[set] = (byte) ((hands[set] + 1) % WAYS);
+            if (!referenced[slot]) {
+                return slot;
+            }
+            referenced[slot] = false;
+        }
+    }
+
+    private int setOf(long hash) {
+        // mistura as duas metades do hash
+        return (int) ((hash ^ (hash >>> 32)) & setMask);
+    }
+
+    /** Esvazia o cache e zera as estatísticas. */
+    public synchronized void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(referenced, false);
+        Arrays.fill(hands, (byte) 0);
+        lookups = hits = insertions = evictions = 0;
+    }
+
+    public synchronized int size() {
+        int count = 0;
+        for (boolean u : used) {
+            if (u) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized long getLookups() {
+        return lookups;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getInsertions() {
+        return insertions;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /** Fração das consultas atendidas pelo cache. */
+    public synchronized double getHitRate() {
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("FitnessCache: consultas=%d, acertos=%d (%.1f%%), inserções=%d, descartes=%d, capacidade=%d",
+                lookups, hits, 100.0 * getHitRate(), insertions, evictions, capacity());
+    }
+}
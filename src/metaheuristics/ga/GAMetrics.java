@@ -0,0 +1,338 @@
+package metaheuristics.ga;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Instrumentação do laço de gerações de AbstractGA: tempo de cada fase
+ * (contagem, total, mínimo, máximo e histograma em nanossegundos, com faixas
+ * de potências de 2), e por geração o fitness melhor/médio/pior da população,
+ * as avaliações e o tempo de cada fase. A cada fase e a cada geração também
+ * é emitido um evento JFR (metaheuristics.ga.Phase e
+ * metaheuristics.ga.Generation), registrado apenas quando uma gravação do
+ * Flight Recorder tiver o evento habilitado.
+ *
+ * Só existe quando habilitada por AbstractGA.setUseMetrics(true) (campo
+ * useMetrics); desabilitada, o custo no laço é um teste de referência nula
+ * por fase. Os dados por geração ficam em vetores primitivos, que crescem
+ * com a execução. Não é thread-safe: pertence à thread que executa o GA, e o
+ * snapshot deve ser exportado após o fim da execução.
+ */
+public final class GAMetrics {
+
+    /** Fases de uma geração, na ordem em que são executadas. */
+    public enum Phase {
+        SELECTION,   // selectParents
+        CROSSOVER,   // crossover
+        MUTATION,    // mutate
+        EVALUATION,  // evaluatePopulation dos filhos
+        REPLACEMENT  // selectPopulation e busca do melhor
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    // faixa k do histograma: durações em [2^(k-1), 2^k) ns (a faixa 0 é a duração 0)
+    private static final int BUCKETS = 64;
+
+    // ---- agregados por fase ----
+    private final long[] phaseCount = new long[PHASES.length];
+    private final long[] phaseTotal = new long[PHASES.length];
+    private final long[] phaseMin = new long[PHASES.length];
+    private final long[] phaseMax = new long[PHASES.length];
+    private final long[][] histogram = new long[PHASES.length][BUCKETS];
+
+    // ---- séries por geração (índice 0 = população inicial) ----
+    private int size;
+    private int[] generation = new int[0];
+    private double[] best = new double[0];
+    private double[] mean = new double[0];
+    private double[] worst = new double[0];
+    private long[] evaluations = new long[0];
+    private long[] elapsed = new long[0];
+    private long[][] phaseNanos = new long[PHASES.length][0];
+
+    // fase corrente da geração em andamento
+    private int current;
+    private final long[] pending = new long[PHASES.length];
+
+    GAMetrics() {
+        Arrays.fill(phaseMin, Long.MAX_VALUE);
+    }
+
+    /** Início da primeira fase de uma geração; retorna o instante inicial. */
+    long begin(int currentGeneration) {
+        current = currentGeneration;
+        Arrays.fill(pending, 0L);
+        return System.nanoTime();
+    }
+
+    /**
+     * Registra o fim de uma fase iniciada em start.
+     *
+     * @return o instante final, início da fase seguinte
+     */
+    long phase(Phase phase, long start) {
+        long end = System.nanoTime();
+        long nanos = end - start;
+        int p = phase.ordinal();
+        phaseCount[p]++;
+        phaseTotal[p] += nanos;
+        phaseMin[p] = Math.min(phaseMin[p], nanos);
+        phaseMax[p] = Math.max(phaseMax[p], nanos);
+        histogram[p][64 - Long.numberOfLeadingZeros(nanos) & (BUCKETS - 1)]++;
+        pending[p] += nanos;
+
+        PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.generation = current;
+            event.phase = phase.name();
+            event.nanos = nanos;
+            event.commit();
+        }
+        return end;
+    }
+
+    /** Fecha uma geração com o fitness da população sobrevivente. */
+    void end(double bestFitness, double meanFitness, double worstFitness, long totalEvaluations, long elapsedNanos) {
+        if (size == generation.length) {
+            grow();
+        }
+        generation[size] = current;
+        best[size] = bestFitness;
+        mean[size] = meanFitness;
+        worst[size] = worstFitness;
+        evaluations[size] = totalEvaluations;
+        elapsed[size] = elapsedNanos;
+        long generationNanos = 0;
+        for (int p = 0; p < PHASES.length; p++) {
+            phaseNanos[p][size] = pending[p];
+            generationNanos += pending[p];
+        }
+        long generationEvaluations = totalEvaluations - (size > 0 ? evaluations[size - 1] : 0L);
+        size++;
+
+        GenerationEvent event = new GenerationEvent();
+        if (event.isEnabled()) {
+            event.generation = current;
+            event.best = bestFitness;
+            event.mean = meanFitness;
+            event.worst = worstFitness;
+            event.evaluations = generationEvaluations;
+            event.nanos = generationNanos;
+            event.commit();
+        }
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, 2 * generation.length);
+        generation = Arrays.copyOf(generation, capacity);
+        best = Arrays.copyOf(best, capacity);
+        mean = Arrays.copyOf(mean, capacity);
+        worst = Arrays.copyOf(worst, capacity);
+        evaluations = Arrays.copyOf(evaluations, capacity);
+        elapsed = Arrays.copyOf(elapsed, capacity);
+        for (int p = 0; p < PHASES.length; p++) {
+            phaseNanos[p] = Arrays.copyOf(phaseNanos[p], capacity);
+        }
+    }
+
+    /** Nº de gerações registradas, incluindo a população inicial. */
+    public int size() {
+        return size;
+    }
+
+    public long getCount(Phase phase) {
+        return phaseCount[phase.ordinal()];
+    }
+
+    public long getTotalNanos(Phase phase) {
+        return phaseTotal[phase.ordinal()];
+    }
+
+    public long getMaxNanos(Phase phase) {
+        return phaseMax[phase.ordinal()];
+    }
+
+    /** Avaliações completas por segundo, do início até a última geração registrada. */
+    public double getEvaluationsPerSecond() {
+        return size == 0 ? 0.0 : perSecond(evaluations[size - 1], elapsed[size - 1]);
+    }
+
+    /**
+     * Aproximação do percentil q (0 < q <= 1) da duração de uma fase: o limite
+     * superior da faixa do histograma em que ele cai.
+     */
+    public long getPercentileNanos(Phase phase, double q) {
+        long[] h = histogram[phase.ordinal()];
+        long rank = (long) Math.ceil(q * phaseCount[phase.ordinal()]);
+        long seen = 0;
+        for (int k = 0; k < BUCKETS; k++) {
+            seen += h[k];
+            if (seen >= rank && seen > 0) {
+                return upperBound(k);
+            }
+        }
+        return 0L;
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == 0 ? 0L : bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos <= 0 ? 0.0 : count * 1e9 / nanos;
+    }
+
+    // ===== Exportação =====
+    /**
+     * Grava uma linha por geração: fitness melhor/médio/pior, avaliações
+     * acumuladas, tempo desde o início, avaliações por segundo na geração e
+     * o tempo de cada fase, em nanossegundos.
+     */
+    public void writeCsv(PrintWriter out) {
+        StringBuilder header = new StringBuilder("Generation,Best,Mean,Worst,Evaluations,ElapsedNanos,EvaluationsPerSecond");
+        for (Phase phase : PHASES) {
+            header.append(',').append(phase.name()).append("Nanos");
+        }
+        out.println(header);
+        for (int i = 0; i < size; i++) {
+            long generationNanos = 0;
+            StringBuilder row = new StringBuilder();
+            for (int p = 0; p < PHASES.length; p++) {
+                row.append(',').append(phaseNanos[p][i]);
+                generationNanos += phaseNanos[p][i];
+            }
+            long generationEvaluations = evaluations[i] - (i > 0 ? evaluations[i - 1] : 0L);
+            out.println(String.format(Locale.ROOT, "%d,%s,%s,%s,%d,%d,%.1f", generation[i], best[i], mean[i],
+                    worst[i], evaluations[i], elapsed[i],
+                    perSecond(generationEvaluations, i > 0 ? generationNanos : elapsed[i])) + row);
+        }
+        out.flush();
+    }
+
+    /**
+     * Grava um objeto JSON com o resumo da execução, os agregados e o
+     * histograma (faixas não vazias, pelo limite superior em ns) de cada fase
+     * e as séries por geração.
+     */
+    public void writeJson(Writer writer) throws IOException {
+        StringBuilder json = new StringBuilder(256 + 64 * size);
+        json.append("{\n  \"generations\": ").append(size == 0 ? 0 : generation[size - 1]);
+        json.append(",\n  \"evaluations\": ").append(size == 0 ? 0 : evaluations[size - 1]);
+        json.append(",\n  \"elapsedNanos\": ").append(size == 0 ? 0 : elapsed[size - 1]);
+        json.append(",\n  \"evaluationsPerSecond\": ");
+        number(json, getEvaluationsPerSecond());
+        json.append(",\n  \"phases\": {");
+        for (int p = 0; p < PHASES.length; p++) {
+            json.append(p == 0 ? "\n" : ",\n").append("    \"").append(PHASES[p].name()).append("\": {");
+            json.append("\"count\": ").append(phaseCount[p]);
+            json.append(", \"totalNanos\": ").append(phaseTotal[p]);
+            json.append(", \"minNanos\": ").append(phaseCount[p] == 0 ? 0 : phaseMin[p]);
+            json.append(", \"maxNanos\": ").append(phaseMax[p]);
+            json.append(", \"histogram\": [");
+            boolean first = true;
+            for (int k = 0; k < BUCKETS; k++) {
+                if (histogram[p][k] != 0) {
+                    json.append(first ? "" : ", ").append("{\"le\": ").append(upperBound(k));
+                    json.append(", \"count\": ").append(histogram[p][k]).append('}');
+                    first = false;
+                }
+            }
+            json.append("]}");
+        }
+        json.append("\n  },\n  \"series\": {");
+        json.append("\n    \"generation\": [");
+        for (int i = 0; i < size; i++) {
+            json.append(i == 0 ? "" : ", ").append(generation[i]);
+        }
+        json.append("],");
+        series(json, "best", best);
+        series(json, "mean", mean);
+        series(json, "worst", worst);
+        json.append("\n    \"evaluations\": ").append(Arrays.toString(Arrays.copyOf(evaluations, size))).append(',');
+        json.append("\n    \"elapsedNanos\": ").append(Arrays.toString(Arrays.copyOf(elapsed, size)));
+        json.append("\n  }\n}\n");
+        writer.write(json.toString());
+        writer.flush();
+    }
+
+    private void series(StringBuilder json, String name, double[] values) {
+        json.append("\n    \"").append(name).append("\": [");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(", ");
+            }
+            number(json, values[i]);
+        }
+        json.append("],");
+    }
+
+    // JSON não representa NaN nem infinitos
+    private static void number(StringBuilder json, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            json.append("null");
+        } else {
+            json.append(value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder(String.format(Locale.ROOT,
+                "GAMetrics: gerações=%d, avaliações/s=%.1f", Math.max(0, size - 1), getEvaluationsPerSecond()));
+        for (Phase phase : PHASES) {
+            long count = getCount(phase);
+            s.append(String.format(Locale.ROOT, "%n  %-11s n=%d, total=%.3fms, média=%.1fus, p99<=%.1fus, máx=%.1fus",
+                    phase.name(), count, getTotalNanos(phase) / 1e6,
+                    count == 0 ? 0.0 : getTotalNanos(phase) / 1e3 / count,
+                    getPercentileNanos(phase, 0.99) / 1e3, getMaxNanos(phase) / 1e3));
+        }
+        return s.toString();
+    }
+
+    // ===== Eventos JFR =====
+    @Name("metaheuristics.ga.Phase")
+    @Label("GA Phase")
+    @Description("Duração de uma fase de uma geração do GA")
+    @Category({ "Metaheuristics", "GA" })
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Generation")
+        int generation;
+        @Label("Phase")
+        String phase;
+        @Label("Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+    }
+
+    @Name("metaheuristics.ga.Generation")
+    @Label("GA Generation")
+    @Description("Fitness da população e avaliações ao fim de uma geração do GA")
+    @Category({ "Metaheuristics", "GA" })
+    @StackTrace(false)
+    static final class GenerationEvent extends Event {
+        @Label("Generation")
+        int generation;
+        @Label("Best Fitness")
+        double best;
+        @Label("Mean Fitness")
+        double mean;
+        @Label("Worst Fitness")
+        double worst;
+        @Label("Evaluations")
+        long evaluations;
+        @Label("Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+    }
+}
@@ -1,12 +1,20 @@
 package metaheuristics.ga;
 
-import problems.Evaluator;
+import java.util.List;
+import problems.BinaryEvaluator;
 import solutions.Solution;
 
-public class GA_SCQBF extends AbstractGA<Integer, Integer> {
+public class GA_SCQBF extends AbstractGA<Integer> {
 
-    public GA_SCQBF(Evaluator<Integer> objFunction, Integer generations, Integer popSize, Double mutationRate) {
+    // o mesmo ObjFunction, tipado para avaliar os cromossomos direto sobre os bits
+    private final BinaryEvaluator evaluator;
+
+    // palavras dos cromossomos do lote corrente, passadas juntas ao Evaluator
+    private long[][] batchWords = new long[0][];
+
+    public GA_SCQBF(BinaryEvaluator objFunction, Integer generations, Integer popSize, Double mutationRate) {
         super(objFunction, generations, popSize, mutationRate);
+        this.evaluator = objFunction;
     }
 
     @Override
@@ -17,32 +25,77 @@ public class GA_SCQBF extends AbstractGA<Integer, Integer> {
     @Override
     protected Solution<Integer> decode(Chromosome chromosome) {
         Solution<Integer> sol = createEmptySol();
-        for (int i = 0; i < chromosomeSize; i++) {
-            if (chromosome.get(i) == 1)
-                sol.add(i);
+        long[] words = chromosome.words();
+        for (int w = 0; w < words.length; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                sol.add((w << 6) + Long.numberOfTrailingZeros(word));
+            }
         }
-        sol.cost = ObjFunction.evaluate(sol);
+        // o fitness memoizado já é o custo: evita reavaliar x'Ax
+        sol.cost = chromosome.getFitness();
         return sol;
     }
 
     @Override
     protected Chromosome generateRandomChromosome() {
         Chromosome chromosome = new Chromosome();
-        for (int i = 0; i < chromosomeSize; i++) {
-            chromosome.add(rng.nextDouble() < 0.5 ? 0 : 1);
+        long[] words = chromosome.words();
+        for (int w = 0; w < words.length; w++) {
+            words[w] = rng.nextLong();
         }
+        words[words.length - 1] &= lastWordMask();
         return chromosome;
     }
 
     @Override
-    protected Double fitness(Chromosome chromosome) {
-        Solution<Integer> sol = decode(chromosome);
-        return sol.cost;
+    protected double fitness(Chromosome chromosome) {
+        // avalia direto sobre os bits, sem montar uma Solution
+        return evaluator.evaluate(chromosome.words());
+    }
+
+    @Override
+    protected void fitness(List<Chromosome> batch, double[] values) {
+        // a população inteira como uma matriz de bits: x'Ax em blocos, lendo A uma vez por bloco
+        if (batchWords.length < batch.size()) {
+            batchWords = new long[batch.size()][];
+        }
+        for (int k = 0; k < batch.size(); k++) {
+            batchWords[k] = batch.get(k).words();
+        }
+        evaluator.evaluate(batchWords, batch.size(), values);
     }
 
     @Override
-    protected void mutateGene(Chromosome chromosome, Integer locus) {
-        int value = chromosome.get(locus);
-        chromosome.set(locus, 1 - value);
+    protected void mutateGenes(Chromosome chromosome, int[] loci, int count) {
+        if (chromosome.isEvaluated()) {
+            // um único delta para todos os flips, em vez de reavaliar x'Ax
+            double fitness = chromosome.getFitness() + evaluator.evaluateFlipsCost(loci, count, chromosome.words());
+            for (int k = 0; k < count; k++) {
+                chromosome.flip(loci[k]);
+            }
+            chromosome.setFitness(fitness);
+        } else {
+            for (int k = 0; k < count; k++) {
+                chromosome.flip(loci[k]);
+            }
+        }
+    }
+
+    @Override
+    protected double offspringFitness(Chromosome parent, int[] loci, int count) {
+        // fitness do pai mais o delta dos genes em que o filho difere dele
+        return parent.getFitness() + evaluator.evaluateFlipsCost(loci, count, parent.words());
+    }
+
+    @Override
+    protected void mutateGene(Chromosome chromosome, int locus) {
+        if (chromosome.isEvaluated()) {
+            // atualiza o fitness com o delta O(n) do flip em vez de reavaliar x'Ax
+            double fitness = chromosome.getFitness() + evaluator.evaluateFlipCost(locus, chromosome.words());
+            chromosome.flip(locus);
+            chromosome.setFitness(fitness);
+        } else {
+            chromosome.flip(locus);
+        }
     }
 }
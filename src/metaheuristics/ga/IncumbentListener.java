@@ -0,0 +1,21 @@
+package metaheuristics.ga;
+
+import solutions.Solution;
+
+/**
+ * Recebe cada novo incumbente (melhor solução da execução) assim que ele é
+ * encontrado, inclusive o da população inicial. É chamado na thread que
+ * executa o GA, que fica parada até o retorno; a solução recebida não deve
+ * ser alterada.
+ */
+@FunctionalInterface
+public interface IncumbentListener<F> {
+
+    /**
+     * @param incumbent    a nova melhor solução
+     * @param generation   geração em que foi encontrada (0 = população inicial)
+     * @param evaluations  avaliações completas realizadas até então
+     * @param elapsedNanos tempo desde o início da execução
+     */
+    void newIncumbent(Solution<F> incumbent, int generation, long evaluations, long elapsedNanos);
+}
@@ -0,0 +1,228 @@
+package metaheuristics.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import solutions.Solution;
+
+/**
+ * Modelo de ilhas: executa várias populações independentes de AbstractGA,
+ * cada uma em sua própria thread, e a cada migrationInterval gerações envia
+ * cópias dos melhores cromossomos de cada ilha para suas vizinhas, segundo a
+ * topologia escolhida.
+ *
+ * As ilhas podem usar flags diferentes (useSUS, useUniformCrossover, ...) e
+ * devem ter o mesmo tamanho de cromossomo. A troca é assíncrona: cada ilha
+ * deposita migrantes na fila limitada da vizinha sem bloquear (se a fila
+ * estiver cheia o migrante é descartado) e, na sua própria migração, consome
+ * o que houver na sua fila. O Evaluator é compartilhado entre as ilhas e
+ * precisa suportar chamadas concorrentes.
+ *
+ * Cada ilha recebe um fluxo aleatório próprio, derivado por split() da
+ * semente do modelo. Sem migração (ou com uma única ilha) a execução é
+ * reprodutível; com migração, o momento em que os migrantes chegam depende
+ * do escalonamento das threads.
+ */
+public class IslandGA<F> {
+
+    public enum Topology {
+        /** ilha i envia para a ilha i+1 (circular) */
+        RING,
+        /** ilha i envia para uma outra ilha sorteada a cada migração */
+        RANDOM,
+        /** ilha i envia para todas as outras */
+        FULLY_CONNECTED
+    }
+
+    /** Cromossomo em trânsito entre ilhas. */
+    private static final class Migrant {
+        final long[] words;
+        final double fitness;
+
+        Migrant(long[] words, double fitness) {
+            this.words = words;
+            this.fitness = fitness;
+        }
+    }
+
+    /** Estatísticas de uma ilha ao final da execução. */
+    public static final class IslandStatistics {
+        public final int island;
+        public final int generations;
+        public final double bestFitness;
+        public final int sent;
+        public final int dropped;
+        public final int received;
+        public final int accepted;
+        public final double seconds;
+
+        IslandStatistics(int island, int generations, double bestFitness, int sent, int dropped,
+                         int received, int accepted, double seconds) {
+            this.island = island;
+            this.generations = generations;
+            this.bestFitness = bestFitness;
+            this.sent = sent;
+            this.dropped = dropped;
+            this.received = received;
+            this.accepted = accepted;
+            this.seconds = seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Ilha %d: gerações=%d, melhor=%.4f, enviados=%d, descartados=%d, recebidos=%d, aceitos=%d, tempo=%.2fs",
+                    island, generations, bestFitness, sent, dropped, received, accepted, seconds);
+        }
+    }
+
+    private final List<? extends AbstractGA<F>> islands;
+    private final Topology topology;
+    private final int migrationInterval;
+    private final int migrants;
+    private final int threads;
+    private final long seed;
+
+    private final List<ArrayBlockingQueue<Migrant>> inboxes = new ArrayList<>();
+    private final List<IslandStatistics> statistics = new ArrayList<>();
+    private Solution<F> bestSol;
+
+    /**
+     * @param islands           populações a evoluir, já configuradas
+     * @param topology          vizinhança usada na migração
+     * @param migrationInterval nº de gerações entre migrações (K)
+     * @param migrants          nº de melhores cromossomos enviados a cada vizinha
+     */
+    public IslandGA(List<? extends AbstractGA<F>> islands, Topology topology, int migrationInterval, int migrants) {
+        this(islands, topology, migrationInterval, migrants, Runtime.getRuntime().availableProcessors(),
+                AbstractGA.DEFAULT_SEED);
+    }
+
+    public IslandGA(List<? extends AbstractGA<F>> islands, Topology topology, int migrationInterval, int migrants,
+                    int threads, long seed) {
+        if (islands.isEmpty()) {
+            throw new IllegalArgumentException("É preciso ao menos uma ilha");
+        }
+        this.islands = islands;
+        this.topology = topology;
+        this.migrationInterval = Math.max(1, migrationInterval);
+        this.migrants = migrants;
+        this.threads = Math.max(1, Math.min(threads, islands.size()));
+        this.seed = seed;
+        // cabem os migrantes de todas as outras ilhas em duas migrações
+        int capacity = Math.max(1, 2 * migrants * (islands.size() - 1));
+        for (int i = 0; i < islands.size(); i++) {
+            inboxes.add(new ArrayBlockingQueue<>(capacity));
+        }
+    }
+
+    /** Executa todas as ilhas e retorna a melhor solução global. */
+    public Solution<F> solve() {
+        // um fluxo para o GA e outro para a topologia de cada ilha
+        SplitMix64 master = new SplitMix64(seed);
+        List<SplitMix64> migrationRngs = new ArrayList<>();
+        for (AbstractGA<F> ga : islands) {
+            ga.setRandom(master.split());
+            migrationRngs.add(master.split());
+        }
+        for (ArrayBlockingQueue<Migrant> inbox : inboxes) {
+            inbox.clear();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<IslandStatistics>> futures = new ArrayList<>();
+            for (int i = 0; i < islands.size(); i++) {
+                final int island = i;
+                final SplitMix64 rng = migrationRngs.get(i);
+                futures.add(executor.submit(() -> evolve(island, rng)));
+            }
+            statistics.clear();
+            for (Future<IslandStatistics> future : futures) {
+                statistics.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Execução das ilhas interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na execução de uma ilha", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        bestSol = null;
+        for (AbstractGA<F> ga : islands) {
+            Solution<F> sol = ga.getBestSolution();
+            if (bestSol == null || sol.cost > bestSol.cost) {
+                bestSol = sol;
+            }
+        }
+        return bestSol;
+    }
+
+    private IslandStatistics evolve(int island, SplitMix64 rng) {
+        AbstractGA<F> ga = islands.get(island);
+        long start = System.nanoTime();
+        int sent = 0, dropped = 0, received = 0, accepted = 0;
+
+        ga.initialize();
+        while (!ga.shouldStop()) {
+            ga.nextGeneration();
+            if (islands.size() > 1 && ga.getCurrentGeneration() % migrationInterval == 0) {
+                // envia os melhores para as vizinhas
+                for (AbstractGA<F>.Chromosome c : ga.selectEmigrants(migrants)) {
+                    for (int target : targets(island, rng)) {
+                        if (inboxes.get(target).offer(new Migrant(c.words(), c.getFitness()))) {
+                            sent++;
+                        } else {
+                            dropped++;
+                        }
+                    }
+                }
+                // recebe o que as outras ilhas já enviaram
+                Migrant m;
+                while ((m = inboxes.get(island).poll()) != null) {
+                    received++;
+                    if (ga.immigrate(m.words, m.fitness)) {
+                        accepted++;
+                    }
+                }
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new IslandStatistics(island, ga.getCurrentGeneration(), ga.getBestSolution().cost,
+                sent, dropped, received, accepted, seconds);
+    }
+
+    private int[] targets(int island, SplitMix64 rng) {
+        int n = islands.size();
+        switch (topology) {
+            case RING:
+                return new int[] { (island + 1) % n };
+            case RANDOM:
+                int target = rng.nextInt(n - 1);
+                return new int[] { target >= island ? target + 1 : target };
+            default:
+                int[] all = new int[n - 1];
+                for (int i = 0, k = 0; i < n; i++) {
+                    if (i != island) {
+                        all[k++] = i;
+                    }
+                }
+                return all;
+        }
+    }
+
+    public Solution<F> getBestSolution() {
+        return bestSol;
+    }
+
+    /** Estatísticas por ilha da última chamada a solve(). */
+    public List<IslandStatistics> getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,66 @@
+package metaheuristics.ga;
+
+/**
+ * Seleção parcial (top-k) sobre um vetor primitivo de chaves, usada na
+ * seleção de sobreviventes. Em vez de ordenar todos os candidatos, o
+ * quickselect apenas particiona um vetor de índices de modo que os k de
+ * maior chave fiquem nas primeiras posições, em O(m) esperado e sem alocação.
+ * A ordem dentro de cada parte não é definida; o pivô é a mediana de três,
+ * de forma que o resultado não consome o gerador aleatório da execução.
+ */
+final class PartialSelection {
+
+    private PartialSelection() {
+    }
+
+    /**
+     * Reordena order[from, to) de modo que order[from, from + k) contenha os
+     * índices das k maiores chaves key[order[i]]. Empates na fronteira são
+     * resolvidos de forma arbitrária, porém determinística.
+     */
+    static void selectTop(double[] key, int[] order, int from, int to, int k) {
+        int target = from + k;
+        if (k <= 0 || target >= to) {
+            return;
+        }
+        int lo = from, hi = to - 1;
+        while (lo < hi) {
+            double pivot = medianOfThree(key[order[lo]], key[order[(lo + hi) >>> 1]], key[order[hi]]);
+            // partição em três faixas: [lo, lt) > pivô, [lt, gt] == pivô, (gt, hi] < pivô
+            int lt = lo, i = lo, gt = hi;
+            while (i <= gt) {
+                double v = key[order[i]];
+                if (v > pivot) {
+                    swap(order, lt++, i++);
+                } else if (v < pivot) {
+                    swap(order, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            if (target < lt) {
+                hi = lt - 1;
+            } else if (target > gt + 1) {
+                lo = gt + 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        if (a > b) {
+            double t = a;
+            a = b;
+            b = t;
+        }
+        // a <= b
+        return c <= a ? a : (c >= b ? b : c);
+    }
+
+    private static void swap(int[] order, int i, int j) {
+        int t = order[i];
+        order[i] = order[j];
+        order[j] = t;
+    }
+}
@@ -0,0 +1,82 @@
+package metaheuristics.ga;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Gerador SplitMix64, o mesmo algoritmo de java.util.SplittableRandom, com
+ * estado explícito. Cada execução do GA tem o seu próprio gerador: não há
+ * disputa entre threads e uma execução com a mesma semente repete
+ * exatamente a mesma trajetória. split() cria um fluxo estatisticamente
+ * independente, usado para derivar os geradores de execuções paralelas
+ * (ilhas, lotes de experimentos) a partir de uma única semente.
+ *
+ * Não é thread-safe: cada thread deve usar o seu próprio fluxo.
+ */
+public final class SplitMix64 implements RandomGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+    private final long gamma;
+
+    public SplitMix64(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private SplitMix64(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Recria um gerador no estado dado por state() e gamma(), p.ex. ao
+     * retomar uma execução de um checkpoint; a sequência continua do ponto
+     * em que foi salva.
+     */
+    public static SplitMix64 restore(long state, long gamma) {
+        if ((gamma & 1L) == 0) {
+            throw new IllegalArgumentException("Gama de SplitMix64 deve ser ímpar: " + gamma);
+        }
+        return new SplitMix64(state, gamma);
+    }
+
+    /** Estado corrente do gerador (avança a cada número sorteado). */
+    public long state() {
+        return seed;
+    }
+
+    /** Incremento do fluxo, fixo desde a criação (ímpar). */
+    public long gamma() {
+        return gamma;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(seed += gamma);
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    /** Novo fluxo independente; avança este gerador. */
+    public SplitMix64 split() {
+        long s = nextLong();
+        return new SplitMix64(s, mixGamma(seed += gamma));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,122 @@
+package metaheuristics.ga;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Critérios de parada de AbstractGA.solve(), em qualquer combinação: a
+ * execução termina assim que o primeiro critério configurado é atingido,
+ * além do limite de gerações do próprio GA. Os critérios são verificados
+ * entre gerações, de modo que uma geração iniciada sempre é concluída e o
+ * incumbente continua disponível após a parada.
+ *
+ * Os limites são relativos ao início de cada execução, e por isso o mesmo
+ * objeto pode ser compartilhado por várias execuções, como as ilhas de
+ * IslandGA; cancel() pode ser chamado de qualquer thread e interrompe todas
+ * elas na próxima verificação.
+ */
+public class Termination {
+
+    /** Motivo pelo qual uma execução terminou. */
+    public enum Reason {
+        GENERATIONS,  // limite de gerações do GA
+        TIME_LIMIT,   // tempo de relógio desde o início da execução
+        EVALUATIONS,  // avaliações completas da função objetivo
+        STAGNATION,   // gerações seguidas sem melhora do incumbente
+        TARGET,       // incumbente com fitness >= alvo
+        CANCELLED     // cancel() ou interrupção da thread
+    }
+
+    private long timeLimitNanos = Long.MAX_VALUE;
+    private long maxEvaluations = Long.MAX_VALUE;
+    private int maxStagnation = Integer.MAX_VALUE;
+    private double target = Double.POSITIVE_INFINITY;
+    private volatile boolean cancelled;
+
+    /** Tempo máximo de relógio por execução, contado a partir de initialize(). */
+    public Termination timeLimit(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Tempo limite negativo: " + duration);
+        }
+        this.timeLimitNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Nº máximo de avaliações completas da função objetivo por execução. Como
+     * é verificado entre gerações, pode ser excedido em até uma geração de
+     * filhos. Não contam os cromossomos cujo fitness não vem de uma avaliação
+     * completa: acertos do cache de fitness, filhos idênticos a um dos pais,
+     * que herdam o fitness dele, filhos com o fitness derivado do pai mais
+     * próximo por deltas de flips no crossover (AbstractGA.offspringFitness,
+     * até crossoverDeltaLimit) e as mutações sobre cromossomos já avaliados,
+     * também por deltas (mutateGenes). O esforço permitido pelo mesmo limite
+     * depende, portanto, dos operadores; para orçamentos comparáveis, somar
+     * os flips avaliados (coluna Flips de InstrumentedEvaluator) ou desligar
+     * os deltas do crossover com crossoverDeltaLimit = 0.
+     */
+    public Termination maxEvaluations(long evaluations) {
+        if (evaluations < 0) {
+            throw new IllegalArgumentException("Limite de avaliações negativo: " + evaluations);
+        }
+        this.maxEvaluations = evaluations;
+        return this;
+    }
+
+    /** Nº máximo de gerações seguidas sem melhora do incumbente. */
+    public Termination maxStagnation(int generations) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("Limite de estagnação negativo: " + generations);
+        }
+        this.maxStagnation = generations;
+        return this;
+    }
+
+    /** Fitness alvo: a execução termina quando o incumbente o alcança. */
+    public Termination target(double fitness) {
+        this.target = fitness;
+        return this;
+    }
+
+    /** Pede a parada de todas as execuções que usam este objeto. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Verifica os critérios para o estado corrente de uma execução.
+     *
+     * @param generation   gerações concluídas
+     * @param generations  limite de gerações do GA
+     * @param elapsedNanos tempo desde o início da execução
+     * @param evaluations  avaliações completas realizadas
+     * @param stagnation   gerações desde a última melhora do incumbente
+     * @param best         fitness do incumbente
+     * @return o motivo da parada, ou null se a execução deve continuar
+     */
+    public Reason check(int generation, int generations, long elapsedNanos, long evaluations, int stagnation,
+                        double best) {
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            return Reason.CANCELLED;
+        }
+        if (best >= target) {
+            return Reason.TARGET;
+        }
+        if (elapsedNanos >= timeLimitNanos) {
+            return Reason.TIME_LIMIT;
+        }
+        if (evaluations >= maxEvaluations) {
+            return Reason.EVALUATIONS;
+        }
+        if (stagnation >= maxStagnation) {
+            return Reason.STAGNATION;
+        }
+        if (generation >= generations) {
+            return Reason.GENERATIONS;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,74 @@
+package metaheuristics.ga;
+
+/**
+ * Hash de Zobrist de cromossomos binários: cada locus i tem uma chave
+ * aleatória de 64 bits e o hash de um cromossomo é o XOR das chaves dos
+ * genes iguais a 1. Como o hash é linear no XOR, inverter um gene custa um
+ * XOR e alterar uma palavra de 64 genes custa o hash da diferença. As chaves
+ * são tabeladas por byte (256 combinações para cada grupo de 8 loci), de modo
+ * que o hash de uma palavra sai de 8 consultas; a tabela ocupa 256 bytes por
+ * locus.
+ *
+ * As chaves dependem só da semente, portanto tabelas criadas com a mesma
+ * semente produzem os mesmos hashes.
+ */
+public final class ZobristHash {
+
+    public static final long DEFAULT_SEED = 0x5DEECE66DL;
+
+    // table[(b << 8) | v]: XOR das chaves dos bits de v no byte b (loci 8b .. 8b+7)
+    private final long[] table;
+    private final int size;
+
+    public ZobristHash(int size) {
+        this(size, DEFAULT_SEED);
+    }
+
+    public ZobristHash(int size, long seed) {
+        this.size = size;
+        int bytes = (((size + 63) >>> 6) << 3);
+        table = new long[bytes << 8];
+        SplitMix64 rng = new SplitMix64(seed);
+        for (int b = 0; b < bytes; b++) {
+            int base = b << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                // loci além de size não existem: chave zero
+                table[base | (1 << bit)] = (b << 3) + bit < size ? rng.nextLong() : 0L;
+            }
+            for (int v = 1; v < 256; v++) {
+                int low = v & -v;
+                table[base | v] = table[base | low] ^ table[base | (v ^ low)];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Chave do locus: o quanto o hash muda quando o gene é invertido. */
+    public long key(int locus) {
+        return table[((locus >>> 3) << 8) | (1 << (locus & 7))];
+    }
+
+    /** Hash dos genes bits na palavra w (os demais genes iguais a 0). */
+    public long word(int w, long bits) {
+        long h = 0L;
+        int base = w << 11;
+        for (int b = 0; b < 8 && bits != 0; b++, bits >>>= 8) {
+            h ^= table[base | (b << 8) | (int) (bits & 0xFF)];
+        }
+        return h;
+    }
+
+    /** Hash completo de um cromossomo. */
+    public long hash(long[] words) {
+        long h = 0L;
+        for (int w = 0; w < words.length; w++) {
+            if (words[w] != 0L) {
+                h ^= word(w, words[w]);
+            }
+        }
+        return h;
+    }
+}
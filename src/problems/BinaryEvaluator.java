@@ -0,0 +1,98 @@
+package problems;
+
+import solutions.Solution;
+
+/**
+ * An {@link Evaluator} of a binary problem, whose solutions are subsets of the
+ * elements 0, ..., n - 1 of the domain. Besides the {@link Solution} based
+ * methods, it evaluates solutions represented as bit vectors, where bit
+ * (i % 64) of word x[i / 64] tells whether element i belongs to the solution,
+ * or as arrays of element indices, as well as the cost variation of flipping
+ * elements of a bit vector. No {@link Solution} needs to be built, which
+ * makes these the entry points for evaluating many candidate solutions, as in
+ * a population.
+ */
+public interface BinaryEvaluator extends Evaluator<Integer> {
+
+	/**
+	 * Evaluates a binary solution represented as a bit vector.
+	 *
+	 * @param x
+	 *            the solution under evaluation, packed as bits.
+	 * @return the evaluation of the solution.
+	 */
+	public abstract double evaluate(long[] x);
+
+	/**
+	 * Evaluates a batch of binary solutions, the first count bit vectors of x,
+	 * storing the evaluation of x[k] in values[k]. Evaluators can compute the
+	 * whole batch at once, e.g., reading their data once for many solutions;
+	 * the default implementation calls {@link #evaluate(long[])} for each of
+	 * them. Implementations may split the batch into tasks when called from a
+	 * {@link java.util.concurrent.ForkJoinPool} worker thread, and evaluate it
+	 * on the calling thread otherwise.
+	 *
+	 * @param x
+	 *            the solutions under evaluation, packed as bits.
+	 * @param count
+	 *            the number of solutions in the batch.
+	 * @param values
+	 *            receives the evaluations of the solutions.
+	 */
+	public default void evaluate(long[][] x, int count, double[] values) {
+		for (int k = 0; k < count; k++) {
+			values[k] = evaluate(x[k]);
+		}
+	}
+
+	/**
+	 * Evaluates a binary solution represented by the indices of the elements
+	 * that belong to it, given in the first count positions of elems.
+	 *
+	 * @param elems
+	 *            the indices of the elements in the solution.
+	 * @param count
+	 *            the number of elements in the solution.
+	 * @return the evaluation of the solution.
+	 */
+	public abstract double evaluate(int[] elems, int count);
+
+	/**
+	 * Evaluates the cost variation of flipping an element of a binary
+	 * solution, i.e., inserting it when absent or removing it otherwise, given
+	 * as a bit vector.
+	 *
+	 * @param elem
+	 *            the index of the element being flipped.
+	 * @param x
+	 *            the solution for which the flip is being evaluated.
+	 * @return the cost variation resulting from the flip.
+	 */
+	public abstract double evaluateFlipCost(int elem, long[] x);
+
+	/**
+	 * Evaluates the cost variation of flipping several elements of a binary
+	 * solution at once, given in the first count positions of elems. The
+	 * default implementation applies the flips one at a time on a copy of x
+	 * with {@link #evaluateFlipCost(int, long[])}; the solution x itself is
+	 * not modified.
+	 *
+	 * @param elems
+	 *            the indices of the elements being flipped.
+	 * @param count
+	 *            the number of elements being flipped.
+	 * @param x
+	 *            the solution for which the flips are being evaluated.
+	 * @return the cost variation resulting from all the flips.
+	 */
+	public default double evaluateFlipsCost(int[] elems, int count, long[] x) {
+		long[] y = x.clone();
+		double delta = 0.0;
+		for (int k = 0; k < count; k++) {
+			delta += evaluateFlipCost(elems[k], y);
+			y[elems[k] >>> 6] ^= 1L << elems[k];
+		}
+		return delta;
+	}
+
+}
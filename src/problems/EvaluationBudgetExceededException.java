@@ -0,0 +1,23 @@
+package problems;
+
+/**
+ * Thrown by {@link InstrumentedEvaluator} when an evaluation would exceed
+ * its hard evaluation budget. The evaluation is not performed, so the
+ * number of evaluations never goes beyond the budget; a caller such as a
+ * metaheuristic can catch it and keep its best solution so far.
+ */
+public class EvaluationBudgetExceededException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The budget that was exhausted.
+	 */
+	public final long budget;
+
+	public EvaluationBudgetExceededException(long budget) {
+		super("Evaluation budget of " + budget + " exhausted");
+		this.budget = budget;
+	}
+
+}
@@ -0,0 +1,443 @@
+package problems;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import solutions.Solution;
+
+/**
+ * A {@link BinaryEvaluator} that forwards every call to another one, counting
+ * the calls of each method and recording their latencies, which makes
+ * metaheuristics comparable by the number of evaluations they perform. All
+ * counters are {@link LongAdder}s, so a single instance can be shared by
+ * threads evaluating in parallel.
+ *
+ * Besides the calls, the decorator counts the full evaluations, i.e., the
+ * solutions evaluated from scratch by {@link #evaluate(Solution)},
+ * {@link #evaluate(long[])}, {@link #evaluate(int[], int)} and each solution
+ * of {@link #evaluate(long[][], int, double[])}, and the flips whose cost
+ * variation is evaluated, i.e., one per {@link #evaluateFlipCost(int, long[])}
+ * call and count per {@link #evaluateFlipsCost(int[], int, long[])} call, so
+ * that the delta evaluations a metaheuristic makes in place of full ones are
+ * accounted for; the other cost variations (insertion, removal and exchange)
+ * are counted only as calls. A budget of full evaluations, which the flips do
+ * not consume, can be enforced either by throwing
+ * {@link EvaluationBudgetExceededException} before the evaluation that would
+ * exceed it, or by signalling a callback once it is reached.
+ *
+ * Latencies are kept per method, and each instance wraps a single problem,
+ * so that they are reported together with its domain size.
+ */
+public class InstrumentedEvaluator implements BinaryEvaluator {
+
+	/**
+	 * The instrumented entry points of {@link BinaryEvaluator}.
+	 */
+	public enum Method {
+		EVALUATE, // evaluate(Solution)
+		INSERTION_COST, // evaluateInsertionCost(Integer, Solution)
+		REMOVAL_COST, // evaluateRemovalCost(Integer, Solution)
+		EXCHANGE_COST, // evaluateExchangeCost(Integer, Integer, Solution)
+		EVALUATE_BITS, // evaluate(long[])
+		EVALUATE_ELEMENTS, // evaluate(int[], int)
+		EVALUATE_BATCH, // evaluate(long[][], int, double[])
+		FLIP_COST, // evaluateFlipCost(int, long[])
+		FLIPS_COST // evaluateFlipsCost(int[], int, long[])
+	}
+
+	private static final Method[] METHODS = Method.values();
+
+	/**
+	 * Header of the columns written by {@link #csvCounts()}: the full
+	 * evaluations and the flips evaluated, followed by the calls of each
+	 * method.
+	 */
+	public static final String CSV_HEADER = csvHeader();
+
+	private final BinaryEvaluator delegate;
+
+	private final int size;
+
+	private final boolean timed;
+
+	private final LongAdder[] calls = new LongAdder[METHODS.length];
+
+	private final LatencyHistogram[] latency = new LatencyHistogram[METHODS.length];
+
+	private final LongAdder evaluations = new LongAdder();
+
+	private final LongAdder flips = new LongAdder();
+
+	// budget of full evaluations: charged exactly, before evaluating, when set
+	private volatile long budget = Long.MAX_VALUE;
+
+	private volatile Runnable onExhausted;
+
+	private final AtomicLong charged = new AtomicLong();
+
+	private final AtomicBoolean exhausted = new AtomicBoolean();
+
+	/**
+	 * Wraps an evaluator, counting calls and recording their latencies.
+	 *
+	 * @param delegate
+	 *            the evaluator that actually evaluates.
+	 */
+	public InstrumentedEvaluator(BinaryEvaluator delegate) {
+		this(delegate, true);
+	}
+
+	/**
+	 * Wraps an evaluator, counting calls and, optionally, recording their
+	 * latencies, which costs two reads of the clock per call.
+	 *
+	 * @param delegate
+	 *            the evaluator that actually evaluates.
+	 * @param timed
+	 *            whether latencies are recorded.
+	 */
+	public InstrumentedEvaluator(BinaryEvaluator delegate, boolean timed) {
+		this.delegate = delegate;
+		this.size = delegate.getDomainSize();
+		this.timed = timed;
+		for (int m = 0; m < METHODS.length; m++) {
+			calls[m] = new LongAdder();
+			latency[m] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Sets a hard budget of full evaluations: an evaluation that would exceed
+	 * it throws {@link EvaluationBudgetExceededException} and is not
+	 * performed. A batch is either evaluated entirely or not at all.
+	 *
+	 * @param budget
+	 *            the maximum number of full evaluations.
+	 */
+	public void setBudget(long budget) {
+		setBudget(budget, null);
+	}
+
+	/**
+	 * Sets a budget of full evaluations. With a callback, the evaluations
+	 * are never refused: the callback runs once, on the thread of the
+	 * evaluation that reaches the budget, and {@link #isBudgetExhausted()}
+	 * becomes true, e.g., to cancel a metaheuristic cooperatively. Without
+	 * one, the budget is enforced as in {@link #setBudget(long)}.
+	 *
+	 * @param budget
+	 *            the maximum number of full evaluations.
+	 * @param onExhausted
+	 *            the callback, or null to throw instead.
+	 */
+	public void setBudget(long budget, Runnable onExhausted) {
+		if (budget < 0)
+			throw new IllegalArgumentException("Negative evaluation budget: " + budget);
+		this.onExhausted = onExhausted;
+		this.budget = budget;
+		exhausted.set(charged.get() >= budget);
+	}
+
+	/**
+	 * Tells whether the full evaluations have reached the budget.
+	 *
+	 * @return true once the budget is used up.
+	 */
+	public boolean isBudgetExhausted() {
+		return exhausted.get();
+	}
+
+	private void charge(int count) {
+		long limit = budget;
+		if (limit == Long.MAX_VALUE)
+			return;
+		Runnable callback = onExhausted;
+		long total = charged.addAndGet(count);
+		if (callback == null) {
+			if (total > limit) {
+				charged.addAndGet(-count);
+				exhausted.set(true);
+				throw new EvaluationBudgetExceededException(limit);
+			}
+			if (total == limit)
+				exhausted.set(true);
+		} else if (total >= limit && exhausted.compareAndSet(false, true)) {
+			callback.run();
+		}
+	}
+
+	private long start() {
+		return timed ? System.nanoTime() : 0L;
+	}
+
+	private void record(Method method, long start) {
+		calls[method.ordinal()].increment();
+		if (timed)
+			latency[method.ordinal()].record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Gives the evaluator being instrumented.
+	 *
+	 * @return the wrapped evaluator.
+	 */
+	public BinaryEvaluator getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Gives the number of calls of a method.
+	 *
+	 * @param method
+	 *            the method.
+	 * @return the calls made so far.
+	 */
+	public long getCalls(Method method) {
+		return calls[method.ordinal()].sum();
+	}
+
+	/**
+	 * Gives the number of solutions evaluated from scratch.
+	 *
+	 * @return the full evaluations made so far.
+	 */
+	public long getEvaluations() {
+		return evaluations.sum();
+	}
+
+	/**
+	 * Gives the number of flips whose cost variation was evaluated.
+	 *
+	 * @return the flips evaluated so far.
+	 */
+	public long getFlips() {
+		return flips.sum();
+	}
+
+	/**
+	 * Gives the latencies of a method.
+	 *
+	 * @param method
+	 *            the method.
+	 * @return the histogram of its latencies.
+	 */
+	public LatencyHistogram getLatency(Method method) {
+		return latency[method.ordinal()];
+	}
+
+	/**
+	 * Clears the counters and latencies, and the evaluations charged to the
+	 * budget. It must not be called while other threads evaluate.
+	 */
+	public void reset() {
+		for (int m = 0; m < METHODS.length; m++) {
+			calls[m].reset();
+			latency[m] = new LatencyHistogram();
+		}
+		evaluations.reset();
+		flips.reset();
+		charged.set(0L);
+		exhausted.set(budget == 0L);
+	}
+
+	@Override
+	public Integer getDomainSize() {
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see problems.Evaluator#evaluate(solutions.Solution)
+	 */
+	@Override
+	public Double evaluate(Solution<Integer> sol) {
+		charge(1);
+		long start = start();
+		Double value = delegate.evaluate(sol);
+		record(Method.EVALUATE, start);
+		evaluations.increment();
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see problems.Evaluator#evaluateInsertionCost(java.lang.Object,
+	 * solutions.Solution)
+	 */
+	@Override
+	public Double evaluateInsertionCost(Integer elem, Solution<Integer> sol) {
+		long start = start();
+		Double value = delegate.evaluateInsertionCost(elem, sol);
+		record(Method.INSERTION_COST, start);
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see problems.Evaluator#evaluateRemovalCost(java.lang.Object,
+	 * solutions.Solution)
+	 */
+	@Override
+	public Double evaluateRemovalCost(Integer elem, Solution<Integer> sol) {
+		long start = start();
+		Double value = delegate.evaluateRemovalCost(elem, sol);
+		record(Method.REMOVAL_COST, start);
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see problems.Evaluator#evaluateExchangeCost(java.lang.Object,
+	 * java.lang.Object, solutions.Solution)
+	 */
+	@Override
+	public Double evaluateExchangeCost(Integer elemIn, Integer elemOut, Solution<Integer> sol) {
+		long start = start();
+		Double value = delegate.evaluateExchangeCost(elemIn, elemOut, sol);
+		record(Method.EXCHANGE_COST, start);
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see problems.BinaryEvaluator#evaluate(long[])
+	 */
+	@Override
+	public double evaluate(long[] x) {
+		charge(1);
+		long start = start();
+		double value = delegate.evaluate(x);
+		record(Method.EVALUATE_BITS, start);
+		evaluations.increment();
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see problems.BinaryEvaluator#evaluate(int[], int)
+	 */
+	@Override
+	public double evaluate(int[] elems, int count) {
+		charge(1);
+		long start = start();
+		double value = delegate.evaluate(elems, count);
+		record(Method.EVALUATE_ELEMENTS, start);
+		evaluations.increment();
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see problems.BinaryEvaluator#evaluate(long[][], int, double[])
+	 */
+	@Override
+	public void evaluate(long[][] x, int count, double[] values) {
+		charge(count);
+		long start = start();
+		delegate.evaluate(x, count, values);
+		record(Method.EVALUATE_BATCH, start);
+		evaluations.add(count);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see problems.BinaryEvaluator#evaluateFlipCost(int, long[])
+	 */
+	@Override
+	public double evaluateFlipCost(int elem, long[] x) {
+		long start = start();
+		double value = delegate.evaluateFlipCost(elem, x);
+		record(Method.FLIP_COST, start);
+		flips.increment();
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see problems.BinaryEvaluator#evaluateFlipsCost(int[], int, long[])
+	 */
+	@Override
+	public double evaluateFlipsCost(int[] elems, int count, long[] x) {
+		long start = start();
+		double value = delegate.evaluateFlipsCost(elems, count, x);
+		record(Method.FLIPS_COST, start);
+		flips.add(count);
+		return value;
+	}
+
+	private static String csvHeader() {
+		StringBuilder header = new StringBuilder("Evaluations,Flips");
+		for (Method method : METHODS) {
+			header.append(',').append(method.name());
+		}
+		return header.toString();
+	}
+
+	/**
+	 * Gives the full evaluations, the flips evaluated and the calls of each
+	 * method as CSV values, in the order of {@link #CSV_HEADER}.
+	 *
+	 * @return the comma-separated counts.
+	 */
+	public String csvCounts() {
+		StringBuilder row = new StringBuilder().append(getEvaluations()).append(',').append(getFlips());
+		for (Method method : METHODS) {
+			row.append(',').append(getCalls(method));
+		}
+		return row.toString();
+	}
+
+	/**
+	 * Writes one CSV line per method that was called, with the domain size,
+	 * the calls and the latencies in nanoseconds (mean, median, 99th
+	 * percentile and maximum; the percentiles are bucket upper bounds).
+	 *
+	 * @param out
+	 *            the destination of the lines.
+	 * @param header
+	 *            whether to write the header line first.
+	 */
+	public void writeLatencyCsv(PrintWriter out, boolean header) {
+		if (header)
+			out.println("Method,Size,Calls,TotalNanos,MeanNanos,P50Nanos,P99Nanos,MaxNanos");
+		for (Method method : METHODS) {
+			LatencyHistogram h = latency[method.ordinal()];
+			long count = h.count();
+			if (count == 0)
+				continue;
+			out.println(String.format(Locale.ROOT, "%s,%d,%d,%d,%.1f,%d,%d,%d", method.name(), size, count,
+					h.totalNanos(), (double) h.totalNanos() / count, h.percentile(0.5), h.percentile(0.99),
+					h.maxNanos()));
+		}
+		out.flush();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder(String.format(Locale.ROOT, "InstrumentedEvaluator: size=%d, evaluations=%d, flips=%d",
+				size, getEvaluations(), getFlips()));
+		for (Method method : METHODS) {
+			long count = getCalls(method);
+			if (count == 0)
+				continue;
+			LatencyHistogram h = latency[method.ordinal()];
+			s.append(String.format(Locale.ROOT, "%n  %-17s calls=%d", method.name(), count));
+			if (timed)
+				s.append(String.format(Locale.ROOT, ", mean=%.1fns, p99<=%dns, max=%dns",
+						(double) h.totalNanos() / count, h.percentile(0.99), h.maxNanos()));
+		}
+		return s.toString();
+	}
+
+}
@@ -0,0 +1,113 @@
+package problems;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds, with one bucket per power of 2:
+ * bucket k counts the durations in [2^(k-1), 2^k), and bucket 0 the
+ * durations of zero. Every counter is a {@link LongAdder}, so that many
+ * threads can record at once without contending on a single variable; the
+ * readings are consistent only when no thread is recording.
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * Number of buckets, enough for any non-negative long.
+	 */
+	public static final int BUCKETS = 64;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+	private final LongAdder total = new LongAdder();
+
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+	public LatencyHistogram() {
+		for (int k = 0; k < BUCKETS; k++) {
+			buckets[k] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records one duration.
+	 *
+	 * @param nanos
+	 *            the duration, in nanoseconds; negative values count as zero.
+	 */
+	public void record(long nanos) {
+		nanos = Math.max(0L, nanos);
+		buckets[64 - Long.numberOfLeadingZeros(nanos)].increment();
+		total.add(nanos);
+		max.accumulate(nanos);
+	}
+
+	/**
+	 * Gives the number of durations recorded.
+	 *
+	 * @return the sum of all buckets.
+	 */
+	public long count() {
+		long count = 0;
+		for (LongAdder bucket : buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	/**
+	 * Gives the number of durations recorded in a bucket.
+	 *
+	 * @param bucket
+	 *            the index of the bucket.
+	 * @return the count of the bucket.
+	 */
+	public long count(int bucket) {
+		return buckets[bucket].sum();
+	}
+
+	public long totalNanos() {
+		return total.sum();
+	}
+
+	public long maxNanos() {
+		return max.get();
+	}
+
+	/**
+	 * Gives an upper bound for the q-quantile of the durations recorded: the
+	 * upper bound of the bucket where it falls.
+	 *
+	 * @param q
+	 *            the quantile, in (0, 1].
+	 * @return the bound, in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long percentile(double q) {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int k = 0; k < BUCKETS; k++) {
+			counts[k] = buckets[k].sum();
+			count += counts[k];
+		}
+		long rank = Math.max(1L, (long) Math.ceil(q * count));
+		long seen = 0;
+		for (int k = 0; k < BUCKETS && count > 0; k++) {
+			seen += counts[k];
+			if (seen >= rank)
+				return upperBound(k);
+		}
+		return 0L;
+	}
+
+	/**
+	 * Gives the largest duration counted by a bucket.
+	 *
+	 * @param bucket
+	 *            the index of the bucket.
+	 * @return 2^bucket - 1, in nanoseconds.
+	 */
+	public static long upperBound(int bucket) {
+		return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+
+}
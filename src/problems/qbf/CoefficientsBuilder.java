@@ -0,0 +1,226 @@
+package problems.qbf;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates the coefficients of a QBF as they are read from an instance and
+ * chooses their storage from the measured density: {@link SparseCoefficients}
+ * when at most {@link #SPARSE_DENSITY} of the n(n+1)/2 coefficients of the
+ * symmetric form are nonzero, {@link DenseCoefficients} otherwise. The
+ * nonzero entries read are kept as triples only while they are few enough
+ * for the sparse storage, so instances whose dense form would not fit in
+ * memory can still be loaded; once they exceed that density, they are moved
+ * into the packed dense storage, where the remaining entries are written
+ * directly, so that reading a dense instance takes little more memory than
+ * its packed form.
+ */
+public class CoefficientsBuilder {
+
+	/**
+	 * Largest density for which the sparse storage is chosen. A nonzero pair
+	 * costs 24 bytes in CSR against 8 bytes per coefficient, zero or not, in
+	 * the packed form, and the sparse kernels pay an indirection per access,
+	 * so sparse storage only pays off well below one third.
+	 */
+	public static final double SPARSE_DENSITY = 0.1;
+
+	/**
+	 * Dimension of the domain.
+	 */
+	private final int size;
+
+	/**
+	 * Largest number of entries kept as triples, i.e., for which the sparse
+	 * storage is still chosen.
+	 */
+	private final long sparseEntries;
+
+	/**
+	 * Row, column and value of each nonzero entry read, with row <= column,
+	 * while at most {@link #sparseEntries} were read.
+	 */
+	private int[] rows;
+	private int[] cols;
+	private double[] vals;
+
+	/**
+	 * Number of nonzero entries read, repeated ones included.
+	 */
+	private long entries;
+
+	/**
+	 * The dense storage, once more than {@link #sparseEntries} were read.
+	 */
+	private DenseCoefficients dense;
+
+	/**
+	 * Creates an empty builder for a QBF of the given dimension.
+	 *
+	 * @param size
+	 *            the dimension of the domain.
+	 */
+	public CoefficientsBuilder(int size) {
+		this.size = size;
+		this.sparseEntries = (long) (SPARSE_DENSITY * PackedCoefficients.length(size));
+		int capacity = (int) Math.min(1024, sparseEntries + 1);
+		rows = new int[capacity];
+		cols = new int[capacity];
+		vals = new double[capacity];
+	}
+
+	/**
+	 * Adds a_{ij} to the coefficients. Since only a_{ij} + a_{ji} is stored,
+	 * the order of the indices is irrelevant, and zeros are ignored.
+	 *
+	 * @param i
+	 *            row of the coefficient.
+	 * @param j
+	 *            column of the coefficient.
+	 * @param value
+	 *            the value being added.
+	 */
+	public void add(int i, int j, double value) {
+		if (value == 0.0)
+			return;
+		if (i < 0 || j < 0 || i >= size || j >= size)
+			throw new IndexOutOfBoundsException("Coefficient (" + i + ", " + j + ") outside a QBF of size " + size);
+		if (dense != null) {
+			dense.add(i, j, value);
+			entries++;
+			return;
+		}
+		int e = (int) entries;
+		if (e == rows.length) {
+			// não passa de sparseEntries + 1: a entrada seguinte já vai para a forma densa
+			int capacity = (int) Math.min((long) rows.length << 1, Math.min(sparseEntries + 1, Integer.MAX_VALUE - 8));
+			rows = Arrays.copyOf(rows, capacity);
+			cols = Arrays.copyOf(cols, capacity);
+			vals = Arrays.copyOf(vals, capacity);
+		}
+		rows[e] = Math.min(i, j);
+		cols[e] = Math.max(i, j);
+		vals[e] = value;
+		entries++;
+		if (entries > sparseEntries)
+			toDense();
+	}
+
+	/**
+	 * Moves the triples into the packed dense storage and releases them.
+	 */
+	private void toDense() {
+		dense = new DenseCoefficients(size);
+		for (int e = 0; e < entries; e++) {
+			dense.add(rows[e], cols[e], vals[e]);
+		}
+		rows = null;
+		cols = null;
+		vals = null;
+	}
+
+	/**
+	 * Gives the fraction of nonzero entries read among the n(n+1)/2
+	 * coefficients of the symmetric form. Repeated entries are counted
+	 * more than once.
+	 *
+	 * @return the density of the coefficients.
+	 */
+	public double density() {
+		return size == 0 ? 0.0 : entries / (double) PackedCoefficients.length(size);
+	}
+
+	/**
+	 * Builds the coefficients in the storage chosen by {@link #density()}.
+	 * The dense coefficients are the builder's own storage, so no entries
+	 * may be added afterwards.
+	 *
+	 * @return the coefficients read.
+	 */
+	public QBFCoefficients build() {
+		if (dense == null)
+			return buildSparse();
+		return dense;
+	}
+
+	/**
+	 * Builds the coefficients in CSR storage, merging repeated pairs.
+	 *
+	 * @return the coefficients read.
+	 */
+	private SparseCoefficients buildSparse() {
+		double[] diagonal = new double[size];
+		int[] rowStart = new int[size + 1];
+		for (int e = 0; e < entries; e++) {
+			if (rows[e] == cols[e]) {
+				diagonal[rows[e]] += vals[e];
+			} else {
+				rowStart[rows[e] + 1]++;
+				rowStart[cols[e] + 1]++;
+			}
+		}
+		for (int i = 0; i < size; i++)
+			rowStart[i + 1] += rowStart[i];
+
+		int[] columns = new int[rowStart[size]];
+		double[] values = new double[rowStart[size]];
+		int[] next = Arrays.copyOf(rowStart, size);
+		for (int e = 0; e < entries; e++) {
+			int i = rows[e], j = cols[e];
+			if (i == j)
+				continue;
+			columns[next[i]] = j;
+			values[next[i]++] = vals[e];
+			columns[next[j]] = i;
+			values[next[j]++] = vals[e];
+		}
+
+		// ordena cada linha por coluna e funde pares repetidos (ou que se anulam)
+		int[] start = new int[size + 1];
+		int out = 0;
+		for (int i = 0; i < size; i++) {
+			int from = rowStart[i], to = rowStart[i + 1];
+			sortRow(columns, values, from, to);
+			start[i] = out;
+			for (int p = from; p < to; p++) {
+				if (out > start[i] && columns[out - 1] == columns[p]) {
+					values[out - 1] += values[p];
+				} else {
+					columns[out] = columns[p];
+					values[out++] = values[p];
+				}
+			}
+			int kept = start[i];
+			for (int p = start[i]; p < out; p++) {
+				if (values[p] != 0.0) {
+					columns[kept] = columns[p];
+					values[kept++] = values[p];
+				}
+			}
+			out = kept;
+		}
+		start[size] = out;
+		return new SparseCoefficients(diagonal, start, Arrays.copyOf(columns, out), Arrays.copyOf(values, out));
+	}
+
+	/**
+	 * Sorts a row segment by column. Rows read from the upper triangular
+	 * formats are already sorted, so the check usually suffices.
+	 */
+	private static void sortRow(int[] columns, double[] values, int from, int to) {
+		boolean sorted = true;
+		for (int p = from + 1; p < to && sorted; p++)
+			sorted = columns[p - 1] <= columns[p];
+		if (sorted)
+			return;
+		long[] keys = new long[to - from];
+		for (int p = from; p < to; p++)
+			keys[p - from] = ((long) columns[p] << 32) | (p - from);
+		Arrays.sort(keys);
+		double[] copy = Arrays.copyOfRange(values, from, to);
+		for (int k = 0; k < keys.length; k++) {
+			columns[from + k] = (int) (keys[k] >>> 32);
+			values[from + k] = copy[(int) keys[k]];
+		}
+	}
+
+}
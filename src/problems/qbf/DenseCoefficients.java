@@ -0,0 +1,212 @@
+package problems.qbf;
+
+/**
+ * {@link PackedCoefficients} held in a single heap array, which is how the
+ * coefficients read from the text instance formats are stored.
+ * 
+ * When {@link #VECTORIZED} holds, the kernels run on the SIMD instructions
+ * of the Vector API ({@link SimdKernels}); otherwise the scalar kernels of
+ * {@link PackedCoefficients} are used. Over bit vectors, the SIMD kernels
+ * visit every coefficient of a row in blocks, while the scalar ones visit
+ * only the variables set to 1, so the scalar kernels are kept for solutions
+ * with fewer than one variable set per vector of coefficients. A full
+ * evaluation over a bit vector first expands it into a per-thread array of
+ * 0/1 values and then runs the unmasked dot products of
+ * {@link #quadratic(double[])}; a batch evaluation does the same for each
+ * tile of vectors, once, before applying the bands of rows to it.
+ */
+public class DenseCoefficients extends PackedCoefficients {
+
+	/**
+	 * The SIMD kernels, or null when they are not used.
+	 */
+	private static final SimdKernels KERNELS = loadKernels();
+
+	/**
+	 * Whether the SIMD kernels are used, decided once at startup. It requires
+	 * the classes of the source set src-vector, which is compiled apart with
+	 * the module jdk.incubator.vector, on the class path, the module in the
+	 * boot layer (JVM option --add-modules jdk.incubator.vector) and vectors
+	 * of at least two doubles, and can be turned off with the system property
+	 * qbf.scalar.
+	 */
+	public static final boolean VECTORIZED = KERNELS != null;
+
+	/**
+	 * The packed upper triangle of the symmetric coefficients, row by row.
+	 */
+	private final double[] packed;
+
+	/**
+	 * rowStart[j] - j, so that the coefficient of x_j*x_i, for j < i, is at
+	 * position columnBase[j] + i. Padded with one vector of zeros for the
+	 * masked gathers of the SIMD kernels; null when not vectorized.
+	 */
+	private final int[] columnBase;
+
+	/**
+	 * Per-thread 0/1 expansion of a bit vector, for the full evaluation.
+	 */
+	private final ThreadLocal<double[]> expanded;
+
+	/**
+	 * Per-thread 0/1 expansion of a tile of bit vectors, for the batch
+	 * evaluation.
+	 */
+	private final ThreadLocal<double[][]> expandedTile;
+
+	/**
+	 * Allocates an all-zero coefficient matrix of the given dimension.
+	 *
+	 * @param size
+	 *            the dimension of the domain.
+	 */
+	public DenseCoefficients(int size) {
+		super(size);
+		this.packed = new double[(int) length(size)];
+		if (VECTORIZED) {
+			columnBase = new int[size + KERNELS.lanes()];
+			for (int j = 0; j < size; j++) {
+				columnBase[j] = rowStart[j] - j;
+			}
+			expanded = ThreadLocal.withInitial(() -> new double[size]);
+			expandedTile = ThreadLocal.withInitial(() -> new double[TILE][size]);
+		} else {
+			columnBase = null;
+			expanded = null;
+			expandedTile = null;
+		}
+	}
+
+	private static SimdKernels loadKernels() {
+		if (Boolean.getBoolean("qbf.scalar") || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+			return null;
+		try {
+			SimdKernels kernels = (SimdKernels) Class.forName("problems.qbf.VectorKernels").getDeclaredConstructor()
+					.newInstance();
+			return kernels.lanes() >= 2 ? kernels : null;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Adds a_{ij} to the coefficients. Since only a_{ij} + a_{ji} is stored,
+	 * the order of the indices is irrelevant.
+	 *
+	 * @param i
+	 *            row of the coefficient.
+	 * @param j
+	 *            column of the coefficient.
+	 * @param value
+	 *            the value being added.
+	 */
+	public void add(int i, int j, double value) {
+		packed[index(i, j)] += value;
+	}
+
+	@Override
+	protected double at(int index) {
+		return packed[index];
+	}
+
+	/**
+	 * Tells whether a bit vector has too few variables set for the SIMD
+	 * kernels to pay off.
+	 */
+	private boolean sparse(long[] x) {
+		int count = 0;
+		for (long word : x) {
+			count += Long.bitCount(word);
+		}
+		return (long) count * KERNELS.lanes() < size;
+	}
+
+	@Override
+	public double quadratic(double[] x) {
+		if (!VECTORIZED)
+			return super.quadratic(x);
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			if (x[i] == 0.0)
+				continue;
+			sum += x[i] * (packed[rowStart[i]] + KERNELS.dot(packed, rowStart[i] - i, x, i + 1, size));
+		}
+		return sum;
+	}
+
+	@Override
+	public double quadratic(long[] x) {
+		if (!VECTORIZED || sparse(x))
+			return super.quadratic(x);
+		double[] values = expanded.get();
+		expand(x, values);
+		return quadratic(values);
+	}
+
+	private void expand(long[] x, double[] values) {
+		for (int j = 0; j < size; j++) {
+			values[j] = (x[j >>> 6] >>> j) & 1L;
+		}
+	}
+
+	@Override
+	protected void quadraticTile(long[][] x, int from, int to, double[] out) {
+		if (!VECTORIZED) {
+			super.quadraticTile(x, from, to, out);
+			return;
+		}
+		double[][] values = expandedTile.get();
+		for (int k = from; k < to; k++) {
+			expand(x[k], values[k - from]);
+			out[k] = 0.0;
+		}
+		for (int lo = 0, hi; lo < size; lo = hi) {
+			hi = bandEnd(lo);
+			for (int k = from; k < to; k++) {
+				double[] v = values[k - from];
+				double sum = 0.0;
+				for (int i = lo; i < hi; i++) {
+					if (v[i] != 0.0)
+						sum += packed[rowStart[i]] + KERNELS.dot(packed, rowStart[i] - i, v, i + 1, size);
+				}
+				out[k] += sum;
+			}
+		}
+	}
+
+	@Override
+	public double contribution(double[] x, int i) {
+		if (!VECTORIZED)
+			return super.contribution(x, i);
+		return packed[rowStart[i]] + KERNELS.columnDot(packed, columnBase, x, i)
+				+ KERNELS.dot(packed, rowStart[i] - i, x, i + 1, size);
+	}
+
+	@Override
+	public double contribution(long[] x, int i) {
+		if (!VECTORIZED || sparse(x))
+			return super.contribution(x, i);
+		// column above the diagonal, over the variables set: cheaper than gathers
+		double sum = packed[rowStart[i]];
+		for (int w = 0; w <= i >>> 6; w++) {
+			long word = w < i >>> 6 ? x[w] : x[w] & ((1L << i) - 1);
+			for (; word != 0; word &= word - 1) {
+				int j = (w << 6) + Long.numberOfTrailingZeros(word);
+				sum += packed[columnBase[j] + i];
+			}
+		}
+		return sum + KERNELS.maskedSum(packed, rowStart[i] - i, x, i + 1, size);
+	}
+
+	@Override
+	public void addRow(int i, double scale, double[] g) {
+		if (!VECTORIZED) {
+			super.addRow(i, scale, g);
+			return;
+		}
+		KERNELS.columnAxpy(packed, columnBase, i, scale, g);
+		KERNELS.axpy(packed, rowStart[i] - i, scale, g, i + 1, size);
+	}
+
+}
@@ -0,0 +1,45 @@
+package problems.qbf;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * {@link PackedCoefficients} read directly from a memory-mapped binary
+ * instance (see {@link QBFBinaryFormat}). The coefficients are never copied
+ * into the heap: the pages are loaded by the operating system on demand and
+ * are shared by every process that maps the same file.
+ * 
+ * The evaluations use the scalar kernels of {@link PackedCoefficients}, since
+ * {@link SimdKernels} only works over heap arrays, so a mapped instance is
+ * slower to evaluate than the same instance read into
+ * {@link DenseCoefficients} on a machine where
+ * {@link DenseCoefficients#VECTORIZED} holds. Heap instances should be
+ * preferred when they fit in memory and evaluation time matters.
+ */
+public class MappedCoefficients extends PackedCoefficients {
+
+	/**
+	 * View of the mapped region holding the packed coefficients.
+	 */
+	private final DoubleBuffer packed;
+
+	/**
+	 * Wraps a mapped region of the given dimension.
+	 *
+	 * @param size
+	 *            the dimension of the domain.
+	 * @param packed
+	 *            the n(n+1)/2 packed coefficients.
+	 */
+	public MappedCoefficients(int size, DoubleBuffer packed) {
+		super(size);
+		if (packed.capacity() != length(size))
+			throw new IllegalArgumentException("Expected " + length(size) + " coefficients, found " + packed.capacity());
+		this.packed = packed;
+	}
+
+	@Override
+	protected double at(int index) {
+		return packed.get(index);
+	}
+
+}
@@ -0,0 +1,289 @@
+package problems.qbf;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Dense coefficients of a QBF kept in its symmetric form, packed as an upper
+ * triangle into a single contiguous sequence of n(n+1)/2 values: row i holds
+ * the diagonal coefficient a_{ii} followed by the pair coefficients
+ * a_{ij} + a_{ji}, for j > i. This makes the storage half of a dense n x n
+ * matrix, while the delta of flipping a variable can be computed without
+ * summing both halves of the matrix on every access.
+ * 
+ * The kernels are written once against {@link #at(int)}; subclasses only
+ * decide where the sequence lives.
+ * 
+ * A batch of bit vectors is evaluated as a blocked product: the rows are
+ * split into bands of about {@link #BAND} coefficients, small enough to stay
+ * in cache, and each band is applied to a tile of {@link #TILE} vectors
+ * before moving on to the next one. The coefficients are thus read once per
+ * tile instead of once per vector. Tiles are independent tasks, run in
+ * parallel when the batch is evaluated from a fork/join worker thread.
+ */
+public abstract class PackedCoefficients extends QBFCoefficients {
+
+	/**
+	 * Approximate number of coefficients in a band of rows of the batch
+	 * evaluation (256 KB of doubles).
+	 */
+	protected static final int BAND = 1 << 15;
+
+	/**
+	 * Number of bit vectors to which each band is applied in turn, which is
+	 * also the grain of the parallel batch evaluation.
+	 */
+	protected static final int TILE = 32;
+
+	/**
+	 * Index of the diagonal element of each row within the packed sequence.
+	 */
+	protected final int[] rowStart;
+
+	/**
+	 * Creates the packed layout for the given dimension.
+	 *
+	 * @param size
+	 *            the dimension of the domain.
+	 */
+	protected PackedCoefficients(int size) {
+		super(size);
+		if (length(size) > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("QBF dimension too large for packed storage: " + size);
+		this.rowStart = new int[size];
+		for (int i = 1; i < size; i++) {
+			rowStart[i] = rowStart[i - 1] + size - i + 1;
+		}
+	}
+
+	/**
+	 * Gives the number of packed coefficients of a QBF of the given dimension.
+	 *
+	 * @param size
+	 *            the dimension of the domain.
+	 * @return n(n+1)/2.
+	 */
+	public static long length(int size) {
+		return (long) size * (size + 1) / 2;
+	}
+
+	/**
+	 * Gives the value at a position of the packed sequence.
+	 *
+	 * @param index
+	 *            the position within the packed sequence.
+	 * @return the coefficient stored at that position.
+	 */
+	protected abstract double at(int index);
+
+	@Override
+	public double get(int i, int j) {
+		return at(index(i, j));
+	}
+
+	@Override
+	public double diagonal(int i) {
+		return at(rowStart[i]);
+	}
+
+	/**
+	 * Gives the position of the coefficient of x_i*x_j in the packed sequence.
+	 *
+	 * @param i
+	 *            row of the coefficient.
+	 * @param j
+	 *            column of the coefficient.
+	 * @return the position of the coefficient.
+	 */
+	protected int index(int i, int j) {
+		return i <= j ? rowStart[i] + j - i : rowStart[j] + i - j;
+	}
+
+	@Override
+	public double quadratic(double[] x) {
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			if (x[i] == 0.0)
+				continue;
+			int base = rowStart[i] - i;
+			double row = at(rowStart[i]);
+			for (int j = i + 1; j < size; j++) {
+				row += x[j] * at(base + j);
+			}
+			sum += x[i] * row;
+		}
+		return sum;
+	}
+
+	@Override
+	public double quadratic(long[] x) {
+		return quadratic(x, 0, size);
+	}
+
+	/**
+	 * Gives the part of x'.A.x that comes from the rows in [from, to) of the
+	 * packed triangle, i.e., the sum of x_i*(a_{ii} + the sum of
+	 * (a_{ij} + a_{ji})*x_j for j > i) over those rows. Only the pairs of
+	 * variables set to 1 are visited.
+	 *
+	 * @param x
+	 *            the values of the variables, packed as bits.
+	 * @param from
+	 *            the first row, inclusive.
+	 * @param to
+	 *            the last row, exclusive.
+	 * @return the sum over the rows.
+	 */
+	protected double quadratic(long[] x, int from, int to) {
+		double sum = 0.0;
+		if (from >= to)
+			return sum;
+		int last = (to - 1) >>> 6;
+		for (int wi = from >>> 6; wi <= last; wi++) {
+			long wordI = x[wi];
+			if (wi == from >>> 6)
+				wordI &= -1L << from;
+			if (wi == last)
+				wordI &= -1L >>> (-to & 63);
+			for (; wordI != 0; wordI &= wordI - 1) {
+				int i = (wi << 6) + Long.numberOfTrailingZeros(wordI);
+				int base = rowStart[i] - i;
+				double row = at(rowStart[i]);
+				// pairs (i, j) with j > i: the rest of the current word, then the next ones
+				for (long wordJ = x[wi] & (-2L << i); wordJ != 0; wordJ &= wordJ - 1) {
+					row += at(base + (wi << 6) + Long.numberOfTrailingZeros(wordJ));
+				}
+				for (int wj = wi + 1; wj < x.length; wj++) {
+					for (long wordJ = x[wj]; wordJ != 0; wordJ &= wordJ - 1) {
+						row += at(base + (wj << 6) + Long.numberOfTrailingZeros(wordJ));
+					}
+				}
+				sum += row;
+			}
+		}
+		return sum;
+	}
+
+	@Override
+	public void quadratic(long[][] x, int count, double[] out) {
+		if (count > TILE && ForkJoinTask.inForkJoinPool()) {
+			new TileTask(x, out, 0, count).invoke();
+		} else {
+			for (int from = 0; from < count; from += TILE) {
+				quadraticTile(x, from, Math.min(from + TILE, count), out);
+			}
+		}
+	}
+
+	/**
+	 * Gives the end of the band of rows starting at row from: the rows are
+	 * added while the band has at most {@link #BAND} coefficients, and at
+	 * least one row is always included.
+	 *
+	 * @param from
+	 *            the first row of the band.
+	 * @return the last row of the band, exclusive.
+	 */
+	protected int bandEnd(int from) {
+		int to = from + 1;
+		while (to < size && rowStart[to] + size - to - rowStart[from] <= BAND) {
+			to++;
+		}
+		return to;
+	}
+
+	/**
+	 * Evaluates the bit vectors x[from, to) band by band, storing their values
+	 * in out.
+	 *
+	 * @param x
+	 *            the bit vectors under evaluation.
+	 * @param from
+	 *            the first vector of the tile, inclusive.
+	 * @param to
+	 *            the last vector of the tile, exclusive.
+	 * @param out
+	 *            receives the values of the QBF.
+	 */
+	protected void quadraticTile(long[][] x, int from, int to, double[] out) {
+		Arrays.fill(out, from, to, 0.0);
+		for (int lo = 0, hi; lo < size; lo = hi) {
+			hi = bandEnd(lo);
+			for (int k = from; k < to; k++) {
+				out[k] += quadratic(x[k], lo, hi);
+			}
+		}
+	}
+
+	/**
+	 * Splits a batch evaluation in halves down to single tiles.
+	 */
+	@SuppressWarnings("serial")
+	private class TileTask extends RecursiveAction {
+
+		private final long[][] x;
+		private final double[] out;
+		private final int from, to;
+
+		TileTask(long[][] x, double[] out, int from, int to) {
+			this.x = x;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= TILE) {
+				quadraticTile(x, from, to, out);
+				return;
+			}
+			// splits at a multiple of TILE, so that every task but the last is a whole tile
+			int mid = from + ((to - from + TILE) / (2 * TILE)) * TILE;
+			invokeAll(new TileTask(x, out, from, mid), new TileTask(x, out, mid, to));
+		}
+
+	}
+
+	@Override
+	public double contribution(double[] x, int i) {
+		double sum = at(rowStart[i]);
+		for (int j = 0; j < i; j++) {
+			sum += x[j] * at(rowStart[j] + i - j);
+		}
+		int base = rowStart[i] - i;
+		for (int j = i + 1; j < size; j++) {
+			sum += x[j] * at(base + j);
+		}
+		return sum;
+	}
+
+	@Override
+	public double contribution(long[] x, int i) {
+		double sum = at(rowStart[i]);
+		int base = rowStart[i] - i;
+		for (int w = 0; w < x.length; w++) {
+			for (long word = x[w]; word != 0; word &= word - 1) {
+				int j = (w << 6) + Long.numberOfTrailingZeros(word);
+				if (j < i)
+					sum += at(rowStart[j] + i - j);
+				else if (j > i)
+					sum += at(base + j);
+			}
+		}
+		return sum;
+	}
+
+	@Override
+	public void addRow(int i, double scale, double[] g) {
+		for (int j = 0; j < i; j++) {
+			g[j] += scale * at(rowStart[j] + i - j);
+		}
+		int base = rowStart[i] - i;
+		for (int j = i + 1; j < size; j++) {
+			g[j] += scale * at(base + j);
+		}
+	}
+
+}
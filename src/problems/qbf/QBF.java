@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StreamTokenizer;
 import java.util.Arrays;
+import problems.BinaryEvaluator;
 import problems.Evaluator;
 import solutions.Solution;
 
@@ -20,10 +21,16 @@ import solutions.Solution;
  * problem: a survey. J Comb Optim (2014) 28:58–81. DOI
  * 10.1007/s10878-014-9734-0.
  * 
+ * The methods of the {@link BinaryEvaluator} interface, as well as the methods
+ * that take the solution as a bit vector, only read the coefficients of the
+ * QBF and keep any scratch data in the caller's arguments or in a per-thread
+ * workspace, so a single instance can be shared by concurrent threads. The
+ * methods operating on {@link #variables} are not thread-safe.
+ * 
  * @author ccavellucci, fusberti
  *
  */
-public class QBF implements Evaluator<Integer> {
+public class QBF implements BinaryEvaluator {
 
 	/**
 	 * Dimension of the domain.
@@ -33,12 +40,20 @@ public class QBF implements Evaluator<Integer> {
 	/**
 	 * The array of numbers representing the domain.
 	 */
-	public final Double[] variables;
+	public final double[] variables;
+
+	/**
+	 * The matrix A of coefficients for the QBF f(x) = x'.A.x, kept in the
+	 * symmetric form described in {@link QBFCoefficients}, either packed or
+	 * sparse depending on the density of the instance.
+	 */
+	public QBFCoefficients A;
 
 	/**
-	 * The matrix A of coefficients for the QBF f(x) = x'.A.x
+	 * Per-thread scratch bit vector used to convert solutions in the
+	 * {@link Evaluator} entry points.
 	 */
-	public Double[][] A;
+	private final ThreadLocal<long[]> workspace;
 
 	/**
 	 * The constructor for QuadracticBinaryFunction class. The filename of the
@@ -53,6 +68,26 @@ public class QBF implements Evaluator<Integer> {
 	public QBF(String filename) throws IOException {
 		size = readInput(filename);
 		variables = allocateVariables();
+		int words = (size + 63) >>> 6;
+		workspace = ThreadLocal.withInitial(() -> new long[words]);
+	}
+
+	/**
+	 * Writes a solution into the per-thread workspace as a bit vector.
+	 * 
+	 * @param sol
+	 *            the solution being converted.
+	 * @return the workspace of the current thread, holding the solution.
+	 */
+	protected long[] toBits(Solution<Integer> sol) {
+
+		long[] x = workspace.get();
+		Arrays.fill(x, 0L);
+		for (Integer elem : sol) {
+			x[elem >>> 6] |= 1L << elem;
+		}
+		return x;
+
 	}
 
 	/**
@@ -95,8 +130,81 @@ public class QBF implements Evaluator<Integer> {
 	@Override
 	public Double evaluate(Solution<Integer> sol) {
 
-		setVariables(sol);
-		return sol.cost = evaluateQBF();
+		return sol.cost = evaluateQBF(toBits(sol));
+
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.BinaryEvaluator#evaluate(long[])
+	 */
+	@Override
+	public double evaluate(long[] x) {
+
+		return evaluateQBF(x);
+
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.BinaryEvaluator#evaluate(int[], int)
+	 */
+	@Override
+	public double evaluate(int[] elems, int count) {
+
+		long[] x = workspace.get();
+		Arrays.fill(x, 0L);
+		for (int k = 0; k < count; k++) {
+			x[elems[k] >>> 6] |= 1L << elems[k];
+		}
+		return evaluateQBF(x);
+
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.BinaryEvaluator#evaluate(long[][], int, double[])
+	 */
+	@Override
+	public void evaluate(long[][] x, int count, double[] values) {
+
+		evaluateQBF(x, count, values);
+
+	}
+
+	/**
+	 * Evaluates a QBF for a solution given as a bit vector, where bit (i % 64)
+	 * of word x[i / 64] tells whether element i belongs to the solution.
+	 * 
+	 * @param x
+	 *            The solution, packed as bits.
+	 * @return The value of the QBF.
+	 */
+	public double evaluateQBF(long[] x) {
+
+		return A.quadratic(x);
+
+	}
+
+	/**
+	 * Evaluates a QBF for a batch of solutions given as bit vectors, storing
+	 * the value of x[k] in values[k]. The coefficients are applied to the
+	 * whole batch as a blocked product, see
+	 * {@link QBFCoefficients#quadratic(long[][], int, double[])}.
+	 * 
+	 * @param x
+	 *            The solutions, packed as bits.
+	 * @param count
+	 *            The number of solutions.
+	 * @param values
+	 *            Receives the values of the QBF.
+	 */
+	public void evaluateQBF(long[][] x, int count, double[] values) {
+
+		A.quadratic(x, count, values);
 
 	}
 
@@ -108,19 +216,7 @@ public class QBF implements Evaluator<Integer> {
 	 */
 	public Double evaluateQBF() {
 
-		Double aux = (double) 0, sum = (double) 0;
-		Double vecAux[] = new Double[size];
-
-		for (int i = 0; i < size; i++) {
-			for (int j = 0; j < size; j++) {
-				aux += variables[j] * A[i][j];
-			}
-			vecAux[i] = aux;
-			sum += aux * variables[i];
-			aux = (double) 0;
-		}
-
-		return sum;
+		return A.quadratic(variables);
 
 	}
 
@@ -133,8 +229,10 @@ public class QBF implements Evaluator<Integer> {
 	@Override
 	public Double evaluateInsertionCost(Integer elem, Solution<Integer> sol) {
 
-		setVariables(sol);
-		return evaluateInsertionQBF(elem);
+		long[] x = toBits(sol);
+		if (((x[elem >>> 6] >>> elem) & 1L) != 0)
+			return 0.0;
+		return evaluateFlipQBF(elem, x);
 
 	}
 
@@ -164,8 +262,10 @@ public class QBF implements Evaluator<Integer> {
 	@Override
 	public Double evaluateRemovalCost(Integer elem, Solution<Integer> sol) {
 
-		setVariables(sol);
-		return evaluateRemovalQBF(elem);
+		long[] x = toBits(sol);
+		if (((x[elem >>> 6] >>> elem) & 1L) == 0)
+			return 0.0;
+		return evaluateFlipQBF(elem, x);
 
 	}
 
@@ -196,8 +296,19 @@ public class QBF implements Evaluator<Integer> {
 	@Override
 	public Double evaluateExchangeCost(Integer elemIn, Integer elemOut, Solution<Integer> sol) {
 
-		setVariables(sol);
-		return evaluateExchangeQBF(elemIn, elemOut);
+		long[] x = toBits(sol);
+		if (elemIn.equals(elemOut))
+			return 0.0;
+		if (((x[elemIn >>> 6] >>> elemIn) & 1L) != 0)
+			return ((x[elemOut >>> 6] >>> elemOut) & 1L) == 0 ? 0.0 : evaluateFlipQBF(elemOut, x);
+		if (((x[elemOut >>> 6] >>> elemOut) & 1L) == 0)
+			return evaluateFlipQBF(elemIn, x);
+
+		// removes elemOut from the workspace, then evaluates the insertion of elemIn
+		double sum = evaluateFlipQBF(elemOut, x);
+		x[elemOut >>> 6] ^= 1L << elemOut;
+		sum += evaluateFlipQBF(elemIn, x);
+		return sum;
 
 	}
 
@@ -216,7 +327,7 @@ public class QBF implements Evaluator<Integer> {
 	 */
 	public Double evaluateExchangeQBF(int in, int out) {
 
-		Double sum = 0.0;
+		double sum = 0.0;
 
 		if (in == out)
 			return 0.0;
@@ -227,11 +338,96 @@ public class QBF implements Evaluator<Integer> {
 
 		sum += evaluateContributionQBF(in);
 		sum -= evaluateContributionQBF(out);
-		sum -= (A[in][out] + A[out][in]);
+		sum -= A.get(in, out);
 
 		return sum;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.BinaryEvaluator#evaluateFlipCost(int, long[])
+	 */
+	@Override
+	public double evaluateFlipCost(int elem, long[] x) {
+
+		return evaluateFlipQBF(elem, x);
+
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see problems.BinaryEvaluator#evaluateFlipsCost(int[], int, long[])
+	 */
+	@Override
+	public double evaluateFlipsCost(int[] elems, int count, long[] x) {
+
+		return evaluateFlipsQBF(elems, count, x);
+
+	}
+
+	/**
+	 * Determines the variation of the objective function caused by flipping
+	 * several elements of a solution given as a bit vector. The flips are
+	 * applied one at a time, with {@link #evaluateFlipQBF(int, long[])}, on a
+	 * copy of x held in the per-thread workspace, so the cost grows with the
+	 * number of flips rather than with a full evaluation, and x is left
+	 * untouched.
+	 * 
+	 * @param elems
+	 *            The elements being flipped.
+	 * @param count
+	 *            The number of elements being flipped.
+	 * @param x
+	 *            The solution, packed as bits.
+	 * @return The variation of the objective function.
+	 */
+	public double evaluateFlipsQBF(int[] elems, int count, long[] x) {
+
+		long[] y = workspace.get();
+		System.arraycopy(x, 0, y, 0, y.length);
+		double delta = 0.0;
+		for (int k = 0; k < count; k++) {
+			delta += evaluateFlipQBF(elems[k], y);
+			y[elems[k] >>> 6] ^= 1L << elems[k];
+		}
+		return delta;
+
+	}
+
+	/**
+	 * Determines the contribution to the QBF objective function from flipping
+	 * an element of a solution given as a bit vector. Unlike the other delta
+	 * methods, it does not use {@link #variables}, and only visits the
+	 * elements of the solution.
+	 * 
+	 * @param i
+	 *            Index of the element being flipped.
+	 * @param x
+	 *            The solution, packed as bits.
+	 * @return The variation of the objective function resulting from the
+	 *         flip.
+	 */
+	public double evaluateFlipQBF(int i, long[] x) {
+
+		double contribution = A.contribution(x, i);
+		return ((x[i >>> 6] >>> i) & 1L) == 0 ? contribution : -contribution;
+
+	}
+
+	/**
+	 * Creates an incremental evaluator holding the empty solution, which
+	 * evaluates single flips in O(1) and applies them in O(n). It is meant
+	 * for a local search over one solution; the GA evaluates the flips of
+	 * its chromosomes with {@link #evaluateFlipsCost(int[], int, long[])}.
+	 * 
+	 * @return a new {@link QBFState} for this QBF.
+	 */
+	public QBFState newState() {
+		return new QBFState(A);
+	}
+
 	/**
 	 * Determines the contribution to the QBF objective function from the
 	 * insertion of an element. This method is faster than evaluating the whole
@@ -248,21 +444,15 @@ public class QBF implements Evaluator<Integer> {
 	 */
 	private Double evaluateContributionQBF(int i) {
 
-		Double sum = 0.0;
-
-		for (int j = 0; j < size; j++) {
-			if (i != j)
-				sum += variables[j] * (A[i][j] + A[j][i]);
-		}
-		sum += A[i][i];
+		return A.contribution(variables, i);
 
-		return sum;
 	}
 
 	/**
 	 * Responsible for setting the QBF function parameters by reading the
 	 * necessary input from an external file. this method reads the domain's
-	 * dimension and matrix {@link #A}.
+	 * dimension and matrix {@link #A}, either from the text format or from the
+	 * binary format of {@link QBFBinaryFormat}, which is memory-mapped.
 	 * 
 	 * @param filename
 	 *            Name of the file containing the input for setting the black
@@ -273,21 +463,26 @@ public class QBF implements Evaluator<Integer> {
 	 */
 	protected Integer readInput(String filename) throws IOException {
 
+		if (QBFBinaryFormat.isBinary(filename)) {
+			A = QBFBinaryFormat.open(filename).coefficients;
+			return A.size;
+		}
+
 		Reader fileInst = new BufferedReader(new FileReader(filename));
 		StreamTokenizer stok = new StreamTokenizer(fileInst);
 
 		stok.nextToken();
 		Integer _size = (int) stok.nval;
-		A = new Double[_size][_size];
+		CoefficientsBuilder coefficients = new CoefficientsBuilder(_size);
 
 		for (int i = 0; i < _size; i++) {
 			for (int j = i; j < _size; j++) {
 				stok.nextToken();
-				A[i][j] = stok.nval;
-				if (j>i)
-					A[j][i] = 0.0;
+				coefficients.add(i, j, stok.nval);
 			}
 		}
+		fileInst.close();
+		A = coefficients.build();
 
 		return _size;
 
@@ -299,8 +494,8 @@ public class QBF implements Evaluator<Integer> {
 	 * 
 	 * @return a pointer to the array of domain variables.
 	 */
-	protected Double[] allocateVariables() {
-		Double[] _variables = new Double[size];
+	protected double[] allocateVariables() {
+		double[] _variables = new double[size];
 		return _variables;
 	}
 
@@ -318,7 +513,7 @@ public class QBF implements Evaluator<Integer> {
 
 		for (int i = 0; i < size; i++) {
 			for (int j = i; j < size; j++) {
-				System.out.print(A[i][j] + " ");
+				System.out.print(A.get(i, j) + " ");
 			}
 			System.out.println();
 		}
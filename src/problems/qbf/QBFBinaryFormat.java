@@ -0,0 +1,374 @@
+package problems.qbf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary format for QBF and SCQBF instances, meant to be opened with
+ * {@link FileChannel#map} instead of being parsed. All values are little
+ * endian. The file is made of:
+ * 
+ * <pre>
+ * header (64 bytes):
+ *   int    magic ("QBFB")
+ *   int    version
+ *   int    flags (bit 0: the file holds SCQBF subsets;
+ *                 bit 1: the coefficients are sparse)
+ *   int    n, the dimension of the domain
+ *   long   number of coefficients: n(n+1)/2 packed, or nnz when sparse
+ *   long   number of subset entries, i.e. the sum of |S_i|
+ *   double largest absolute row sum of the SCQBF matrix (default lambda)
+ *   zeros up to 64 bytes
+ * dense coefficients:
+ *   double[n(n+1)/2]  packed as in {@link PackedCoefficients}
+ * sparse coefficients, as in {@link SparseCoefficients}:
+ *   double[n]         the diagonal
+ *   int[n+1]          start of each row (CSR)
+ *   int[nnz]          the neighbours of every row, sorted within each row
+ *   double[nnz]       the pair coefficients of every row
+ * int[n+1]          subsets: start of each S_i (CSR), only if flagged
+ * int[entries]      subsets: 0-based elements of every S_i, only if flagged
+ * </pre>
+ * 
+ * Since the dense coefficients are already in the symmetric packed form,
+ * opening a dense instance costs a few system calls regardless of its size;
+ * a single mapping is limited to 2 GB, which bounds n at about 23,000. The
+ * coefficients of an instance that {@link CoefficientsBuilder} stores in
+ * CSR are written in CSR as well, so the file grows with nnz rather than
+ * n^2, and are copied into the heap when opened. Version 1 files, which are
+ * always dense, can still be opened.
+ * 
+ * The {@link #main} method converts the text formats read by {@link QBF} and
+ * {@link SCQBF} into this format.
+ */
+public final class QBFBinaryFormat {
+
+	/**
+	 * The bytes "QBFB", read as a little endian int.
+	 */
+	public static final int MAGIC = 0x42464251;
+
+	/**
+	 * The current version of the format.
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * Flag telling that the file holds the subsets of an SCQBF.
+	 */
+	public static final int FLAG_SUBSETS = 1;
+
+	/**
+	 * Flag telling that the coefficients are stored in CSR form.
+	 */
+	public static final int FLAG_SPARSE = 2;
+
+	private static final int HEADER_BYTES = 64;
+
+	private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+	/**
+	 * The contents of an opened binary instance.
+	 */
+	public static final class Instance {
+
+		/**
+		 * The coefficients: memory-mapped when dense, in the heap when
+		 * sparse.
+		 */
+		public final QBFCoefficients coefficients;
+
+		/**
+		 * Start of each subset in {@link #subsetElems}, or null for a QBF.
+		 */
+		public final int[] subsetStart;
+
+		/**
+		 * The elements of all subsets, or null for a QBF.
+		 */
+		public final int[] subsetElems;
+
+		/**
+		 * Largest absolute row sum of the SCQBF matrix.
+		 */
+		public final double maxRowAbsSum;
+
+		private Instance(QBFCoefficients coefficients, int[] subsetStart, int[] subsetElems, double maxRowAbsSum) {
+			this.coefficients = coefficients;
+			this.subsetStart = subsetStart;
+			this.subsetElems = subsetElems;
+			this.maxRowAbsSum = maxRowAbsSum;
+		}
+
+	}
+
+	private QBFBinaryFormat() {
+	}
+
+	/**
+	 * Tells whether a file starts with the magic number of this format.
+	 * 
+	 * @param filename
+	 *            Name of the file.
+	 * @return true if the file is a binary instance.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public static boolean isBinary(String filename) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			while (magic.hasRemaining() && channel.read(magic) >= 0) {
+			}
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+
+	}
+
+	/**
+	 * Opens a binary instance, mapping its coefficients into memory.
+	 * 
+	 * @param filename
+	 *            Name of the file.
+	 * @return the contents of the instance.
+	 * @throws IOException
+	 *             If the file cannot be read or is not a valid instance.
+	 */
+	public static Instance open(String filename) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC)
+				throw new IOException(filename + ": not a binary QBF instance");
+			int version = header.getInt(4);
+			if (version < 1 || version > VERSION)
+				throw new IOException(filename + ": unsupported binary version " + version);
+			int flags = header.getInt(8);
+			int size = header.getInt(12);
+			long coefficients = header.getLong(16);
+			long entries = header.getLong(24);
+			double maxRowAbsSum = header.getDouble(32);
+			boolean sparse = (flags & FLAG_SPARSE) != 0;
+
+			if (size < 0 || coefficients < 0 || entries < 0 || entries > Integer.MAX_VALUE
+					|| (sparse ? coefficients > Integer.MAX_VALUE : coefficients != PackedCoefficients.length(size)))
+				throw new IOException(filename + ": inconsistent header");
+			long bytes = sparse ? (size + coefficients) * Double.BYTES + (size + 1L + coefficients) * Integer.BYTES
+					: coefficients * Double.BYTES;
+			if (!sparse && bytes > Integer.MAX_VALUE)
+				throw new IOException(filename + ": instance too large for a single mapping (n = " + size + ")");
+			long expected = HEADER_BYTES + bytes;
+			if ((flags & FLAG_SUBSETS) != 0)
+				expected += (size + 1L + entries) * Integer.BYTES;
+			if (channel.size() < expected)
+				throw new IOException(filename + ": truncated file");
+
+			QBFCoefficients A;
+			if (sparse) {
+				A = readSparse(filename, channel, size, (int) coefficients);
+			} else {
+				A = new MappedCoefficients(size, channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, bytes)
+						.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+			}
+
+			int[] subsetStart = null, subsetElems = null;
+			if ((flags & FLAG_SUBSETS) != 0) {
+				IntBuffer subsets = map(channel, HEADER_BYTES + bytes, (size + 1L + entries) * Integer.BYTES)
+						.asIntBuffer();
+				subsetStart = new int[size + 1];
+				subsetElems = new int[(int) entries];
+				subsets.get(subsetStart);
+				subsets.get(subsetElems);
+				checkSubsets(filename, size, subsetStart, subsetElems);
+			}
+
+			return new Instance(A, subsetStart, subsetElems, maxRowAbsSum);
+		}
+
+	}
+
+	/**
+	 * Reads the CSR coefficients that follow the header into the heap,
+	 * checking them as in {@link #checkSubsets}, and additionally that the
+	 * columns of every row are sorted, distinct and off the diagonal.
+	 */
+	private static SparseCoefficients readSparse(String filename, FileChannel channel, int size, int nonzeros)
+			throws IOException {
+
+		long offset = HEADER_BYTES;
+		double[] diagonal = new double[size];
+		map(channel, offset, (long) size * Double.BYTES).asDoubleBuffer().get(diagonal);
+		offset += (long) size * Double.BYTES;
+		int[] rowStart = new int[size + 1];
+		map(channel, offset, (size + 1L) * Integer.BYTES).asIntBuffer().get(rowStart);
+		offset += (size + 1L) * Integer.BYTES;
+		int[] columns = new int[nonzeros];
+		map(channel, offset, (long) nonzeros * Integer.BYTES).asIntBuffer().get(columns);
+		offset += (long) nonzeros * Integer.BYTES;
+		double[] values = new double[nonzeros];
+		map(channel, offset, (long) nonzeros * Double.BYTES).asDoubleBuffer().get(values);
+
+		if (rowStart[0] != 0 || rowStart[size] != nonzeros)
+			throw new IOException(filename + ": corrupt coefficients (row starts must span [0, " + nonzeros + "])");
+		for (int i = 0; i < size; i++) {
+			if (rowStart[i] > rowStart[i + 1])
+				throw new IOException(filename + ": corrupt coefficients (row " + i + " ends before it starts)");
+			for (int p = rowStart[i]; p < rowStart[i + 1]; p++) {
+				int j = columns[p];
+				if (j < 0 || j >= size || j == i || (p > rowStart[i] && columns[p - 1] >= j))
+					throw new IOException(filename + ": corrupt coefficients (column " + j + " in row " + i + ")");
+			}
+		}
+		return new SparseCoefficients(diagonal, rowStart, columns, values);
+
+	}
+
+	/**
+	 * Maps a little endian, read-only region of the file.
+	 */
+	private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+
+		if (length > Integer.MAX_VALUE)
+			throw new IOException("section of " + length + " bytes too large for a single mapping");
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+
+	}
+
+	/**
+	 * Checks the subsets read from a file, so that a corrupt file is reported
+	 * when it is opened rather than as an index error during an evaluation:
+	 * the starts must begin at 0, never decrease and end at the number of
+	 * entries, and every element must be in [0, n).
+	 */
+	private static void checkSubsets(String filename, int size, int[] start, int[] elems) throws IOException {
+
+		if (start[0] != 0 || start[size] != elems.length)
+			throw new IOException(filename + ": corrupt subsets (starts must span [0, " + elems.length + "])");
+		for (int i = 0; i < size; i++) {
+			if (start[i] > start[i + 1])
+				throw new IOException(filename + ": corrupt subsets (S_" + i + " ends before it starts)");
+		}
+		for (int e : elems) {
+			if (e < 0 || e >= size)
+				throw new IOException(filename + ": corrupt subsets (element " + e + " outside [0, " + size + "))");
+		}
+
+	}
+
+	/**
+	 * Writes an instance in the binary format, with the coefficients in CSR
+	 * when they are {@link SparseCoefficients} and packed otherwise.
+	 * 
+	 * @param filename
+	 *            Name of the file being written.
+	 * @param A
+	 *            the coefficients of the QBF.
+	 * @param subsetStart
+	 *            start of each subset, or null for a QBF.
+	 * @param subsetElems
+	 *            the elements of all subsets, or null for a QBF.
+	 * @param maxRowAbsSum
+	 *            largest absolute row sum of the SCQBF matrix.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public static void write(String filename, QBFCoefficients A, int[] subsetStart, int[] subsetElems,
+			double maxRowAbsSum) throws IOException {
+
+		Path path = Paths.get(filename);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			int size = A.size;
+			boolean hasSubsets = subsetStart != null;
+			SparseCoefficients sparse = A instanceof SparseCoefficients ? (SparseCoefficients) A : null;
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+			int flags = (hasSubsets ? FLAG_SUBSETS : 0) | (sparse != null ? FLAG_SPARSE : 0);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(size);
+			buffer.putLong(sparse != null ? sparse.rowStart()[size] : PackedCoefficients.length(size));
+			buffer.putLong(hasSubsets ? subsetElems.length : 0L);
+			buffer.putDouble(maxRowAbsSum);
+			while (buffer.position() < HEADER_BYTES)
+				buffer.put((byte) 0);
+
+			if (sparse != null) {
+				for (int i = 0; i < size; i++)
+					putDouble(channel, buffer, sparse.diagonal(i));
+				putInts(channel, buffer, sparse.rowStart());
+				putInts(channel, buffer, sparse.columns());
+				for (double v : sparse.values())
+					putDouble(channel, buffer, v);
+			} else {
+				for (int i = 0; i < size; i++) {
+					for (int j = i; j < size; j++)
+						putDouble(channel, buffer, A.get(i, j));
+				}
+			}
+			if (hasSubsets) {
+				putInts(channel, buffer, subsetStart);
+				putInts(channel, buffer, subsetElems);
+			}
+			flush(channel, buffer);
+		}
+
+	}
+
+	private static void putDouble(FileChannel channel, ByteBuffer buffer, double v) throws IOException {
+		if (buffer.remaining() < Double.BYTES)
+			flush(channel, buffer);
+		buffer.putDouble(v);
+	}
+
+	private static void putInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+		for (int v : values) {
+			if (buffer.remaining() < Integer.BYTES)
+				flush(channel, buffer);
+			buffer.putInt(v);
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Converts a text instance into the binary format.
+	 * 
+	 * <pre>
+	 * java problems.qbf.QBFBinaryFormat qbf|scqbf &lt;input&gt; &lt;output&gt;
+	 * </pre>
+	 * 
+	 * @param args
+	 *            the format of the input, the input file and the output file.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 3 || !(args[0].equals("qbf") || args[0].equals("scqbf"))) {
+			System.err.println("Usage: java problems.qbf.QBFBinaryFormat qbf|scqbf <input> <output>");
+			System.exit(1);
+		}
+
+		long start = System.currentTimeMillis();
+		if (args[0].equals("scqbf")) {
+			SCQBF scqbf = new SCQBF(args[1]);
+			write(args[2], scqbf.A, scqbf.subsetStart(), scqbf.subsetElems(), scqbf.maxRowAbsSum());
+		} else {
+			QBF qbf = new QBF(args[1]);
+			write(args[2], qbf.A, null, null, 0.0);
+		}
+		System.out.println(args[1] + " -> " + args[2] + " (" + (System.currentTimeMillis() - start) + " ms)");
+
+	}
+
+}
@@ -0,0 +1,125 @@
+package problems.qbf;
+
+/**
+ * Primitive storage for the coefficients of a QBF f(x) = x'.A.x, together with
+ * the kernels used to evaluate it. Since x is a binary vector, a_{ij} and
+ * a_{ji} always multiply the same term x_i*x_j, so only their sum matters:
+ * implementations store the symmetric form of A, in which the coefficient of
+ * x_i*x_j is a_{ii} when i = j and a_{ij} + a_{ji} otherwise.
+ */
+public abstract class QBFCoefficients {
+
+	/**
+	 * Dimension of the domain.
+	 */
+	public final int size;
+
+	/**
+	 * Creates the storage for a QBF of the given dimension.
+	 *
+	 * @param size
+	 *            the dimension of the domain.
+	 */
+	protected QBFCoefficients(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Gives the coefficient of the term x_i*x_j, that is, a_{ii} when i = j and
+	 * a_{ij} + a_{ji} otherwise.
+	 *
+	 * @param i
+	 *            row of the coefficient.
+	 * @param j
+	 *            column of the coefficient.
+	 * @return the coefficient of x_i*x_j.
+	 */
+	public abstract double get(int i, int j);
+
+	/**
+	 * Gives the diagonal coefficient a_{ii}.
+	 *
+	 * @param i
+	 *            index of the variable.
+	 * @return the coefficient a_{ii}.
+	 */
+	public abstract double diagonal(int i);
+
+	/**
+	 * Evaluates x'.A.x for a vector of 0/1 values.
+	 *
+	 * @param x
+	 *            the values of the variables.
+	 * @return the value of the QBF.
+	 */
+	public abstract double quadratic(double[] x);
+
+	/**
+	 * Bit vector version of {@link #quadratic(double[])}, where bit (i % 64)
+	 * of word x[i / 64] is the value of x_i. Only the pairs of variables set
+	 * to 1 are visited.
+	 *
+	 * @param x
+	 *            the values of the variables, packed as bits.
+	 * @return the value of the QBF.
+	 */
+	public abstract double quadratic(long[] x);
+
+	/**
+	 * Evaluates x'.A.x for each of the first count bit vectors of x, storing
+	 * the value for x[k] in out[k]. The default implementation evaluates them
+	 * one at a time with {@link #quadratic(long[])}.
+	 *
+	 * @param x
+	 *            the bit vectors under evaluation.
+	 * @param count
+	 *            the number of bit vectors.
+	 * @param out
+	 *            receives the values of the QBF.
+	 */
+	public void quadratic(long[][] x, int count, double[] out) {
+		for (int k = 0; k < count; k++) {
+			out[k] = quadratic(x[k]);
+		}
+	}
+
+	/**
+	 * Gives the variation of x'.A.x obtained by setting x_i from 0 to 1,
+	 * disregarding the current value of x_i, i.e., a_{ii} plus the sum of
+	 * (a_{ij} + a_{ji})*x_j for every j != i.
+	 *
+	 * @param x
+	 *            the values of the variables.
+	 * @param i
+	 *            index of the variable.
+	 * @return the contribution of x_i to the QBF.
+	 */
+	public abstract double contribution(double[] x, int i);
+
+	/**
+	 * Bit vector version of {@link #contribution(double[], int)}, where bit
+	 * (j % 64) of word x[j / 64] is the value of x_j. Only the variables set
+	 * to 1 are visited.
+	 *
+	 * @param x
+	 *            the values of the variables, packed as bits.
+	 * @param i
+	 *            index of the variable.
+	 * @return the contribution of x_i to the QBF.
+	 */
+	public abstract double contribution(long[] x, int i);
+
+	/**
+	 * Adds scale*(a_{ij} + a_{ji}) to g_j for every j != i, which updates the
+	 * vector g = (A + A')x, diagonal excluded, after x_i is changed by scale.
+	 *
+	 * @param i
+	 *            index of the variable that changed.
+	 * @param scale
+	 *            the variation of x_i, either 1 or -1.
+	 * @param g
+	 *            the vector being updated.
+	 */
+	public abstract void addRow(int i, double scale, double[] g);
+
+}
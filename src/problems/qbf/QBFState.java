@@ -0,0 +1,166 @@
+package problems.qbf;
+
+import java.util.Arrays;
+import solutions.Solution;
+
+/**
+ * Incremental evaluator of a QBF for a single binary solution x. Besides x,
+ * it maintains the vector g = (A + A')x, without the diagonal terms, so that
+ * the variation of f(x) = x'.A.x caused by flipping any variable x_i is
+ * a_{ii} + g_i, with the sign given by the current value of x_i. Hence a flip
+ * is evaluated in O(1) and applied in O(n), while a full evaluation costs
+ * O(n^2). This is the evaluator to use when many flips of the same solution
+ * are inspected, as in a local search.
+ * 
+ * It does not pay off when a solution only receives a few flips before being
+ * discarded, as the chromosomes of a genetic algorithm: loading a solution
+ * costs O(n) per selected variable, more than evaluating its flips directly.
+ * The GA therefore uses the stateless
+ * {@link problems.BinaryEvaluator#evaluateFlipsCost(int[], int, long[])}
+ * instead, and no class in the GA uses this one.
+ *
+ * Instances are obtained from {@link QBF#newState()}, which binds the state to
+ * the objective function of the problem.
+ */
+public class QBFState {
+
+	/**
+	 * The coefficients of the QBF.
+	 */
+	protected final QBFCoefficients A;
+
+	/**
+	 * The current solution, packed as bits.
+	 */
+	protected final long[] x;
+
+	/**
+	 * The vector (A + A')x, excluding the diagonal of A.
+	 */
+	protected final double[] g;
+
+	/**
+	 * The value of x'.A.x for the current solution.
+	 */
+	protected double quadratic;
+
+	/**
+	 * Creates a state holding the empty solution.
+	 *
+	 * @param A
+	 *            the coefficients of the QBF.
+	 */
+	protected QBFState(QBFCoefficients A) {
+		this.A = A;
+		this.x = new long[(A.size + 63) >>> 6];
+		this.g = new double[A.size];
+	}
+
+	/**
+	 * Resets the state to the empty solution.
+	 */
+	public void clear() {
+		Arrays.fill(x, 0L);
+		Arrays.fill(g, 0.0);
+		quadratic = 0.0;
+	}
+
+	/**
+	 * Loads a solution given as a bit vector, where bit (i % 64) of word
+	 * bits[i / 64] tells whether element i belongs to the solution.
+	 *
+	 * @param bits
+	 *            the solution to be loaded.
+	 */
+	public void load(long[] bits) {
+		clear();
+		for (int w = 0; w < x.length; w++) {
+			for (long word = bits[w]; word != 0; word &= word - 1) {
+				flip((w << 6) + Long.numberOfTrailingZeros(word));
+			}
+		}
+	}
+
+	/**
+	 * Loads a solution given as a list of elements.
+	 *
+	 * @param sol
+	 *            the solution to be loaded.
+	 */
+	public void load(Solution<Integer> sol) {
+		clear();
+		for (Integer elem : sol) {
+			if (!contains(elem))
+				flip(elem);
+		}
+	}
+
+	/**
+	 * Tells whether an element belongs to the current solution.
+	 *
+	 * @param i
+	 *            the element.
+	 * @return true if x_i = 1.
+	 */
+	public boolean contains(int i) {
+		return ((x[i >>> 6] >>> i) & 1L) != 0;
+	}
+
+	/**
+	 * Gives the current solution as a bit vector. The array must not be
+	 * modified.
+	 *
+	 * @return the bits of the current solution.
+	 */
+	public long[] bits() {
+		return x;
+	}
+
+	/**
+	 * Gives the objective function value of the current solution.
+	 *
+	 * @return the value of the current solution.
+	 */
+	public double value() {
+		return quadratic;
+	}
+
+	/**
+	 * Gives, in O(1), the variation of the objective function caused by
+	 * flipping x_i, without changing the state.
+	 *
+	 * @param i
+	 *            the element being flipped.
+	 * @return the cost variation of the flip.
+	 */
+	public double flipDelta(int i) {
+		return quadraticFlipDelta(i);
+	}
+
+	/**
+	 * Flips x_i, updating the objective function value and the vector g in
+	 * O(n).
+	 *
+	 * @param i
+	 *            the element being flipped.
+	 */
+	public void flip(int i) {
+		double delta = quadraticFlipDelta(i);
+		quadratic += delta;
+		x[i >>> 6] ^= 1L << i;
+		A.addRow(i, contains(i) ? 1.0 : -1.0, g);
+	}
+
+	/**
+	 * Gives the variation of x'.A.x caused by flipping x_i.
+	 *
+	 * @param i
+	 *            the element being flipped.
+	 * @return the variation of the quadratic term.
+	 */
+	protected final double quadraticFlipDelta(int i) {
+		double contribution = A.diagonal(i) + g[i];
+		return contains(i) ? -contribution : contribution;
+	}
+
+}
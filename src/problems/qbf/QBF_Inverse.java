@@ -33,6 +33,25 @@ public class QBF_Inverse extends QBF {
 		return -super.evaluateQBF();
 	}
 	
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateQBF(long[])
+	 */
+	@Override
+	public double evaluateQBF(long[] x) {
+		return -super.evaluateQBF(x);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateQBF(long[][], int, double[])
+	 */
+	@Override
+	public void evaluateQBF(long[][] x, int count, double[] values) {
+		super.evaluateQBF(x, count, values);
+		for (int k = 0; k < count; k++) {
+			values[k] = -values[k];
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see problems.qbf.QBF#evaluateInsertion(int)
 	 */
@@ -57,4 +76,30 @@ public class QBF_Inverse extends QBF {
 		return -super.evaluateExchangeQBF(in,out);
 	}
 
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#evaluateFlipQBF(int, long[])
+	 */
+	@Override
+	public double evaluateFlipQBF(int i, long[] x) {
+		return -super.evaluateFlipQBF(i, x);
+	}
+
+	/* (non-Javadoc)
+	 * @see problems.qbf.QBF#newState()
+	 */
+	@Override
+	public QBFState newState() {
+		return new QBFState(A) {
+			@Override
+			public double value() {
+				return -super.value();
+			}
+
+			@Override
+			public double flipDelta(int i) {
+				return -super.flipDelta(i);
+			}
+		};
+	}
+
 }
@@ -4,7 +4,9 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import solutions.Solution;
 
 /**
  * SCQBF — Set Covering Quadratic Binary Function (MAX-SC-QBF)
@@ -21,9 +23,16 @@ import java.util.List;
  */
 public class SCQBF extends QBF {
 
-    private List<List<Integer>> subsets; // S_i (0-based internamente)
+    // S_i em formato CSR (0-based): elementos de S_i em subsetElems[subsetStart[i] .. subsetStart[i+1])
+    private int[] subsetStart;
+    private int[] subsetElems;
+    // índice inverso em CSR: subconjuntos que cobrem k em coverSets[coverStart[k] .. coverStart[k+1])
+    private int[] coverStart;
+    private int[] coverSets;
+    private int[] coverCount;            // nº de S_i selecionados que cobrem k (mantido por setVariables)
     private int N;                       // nº de variáveis/elementos
     private double lambda;               // penalidade por elemento não coberto
+    private double maxRowAbsSum;         // maior soma absoluta por linha de A (lida em readInput)
 
     // Usa lambda padrão (calculado após leitura de A)
     public SCQBF(String filename) throws IOException {
@@ -39,6 +48,18 @@ public class SCQBF extends QBF {
 
     @Override
     protected Integer readInput(String filename) throws IOException {
+        // ---- formato binário (QBFBinaryFormat): A mapeada em memória, S_i já em CSR ----
+        if (QBFBinaryFormat.isBinary(filename)) {
+            QBFBinaryFormat.Instance inst = QBFBinaryFormat.open(filename);
+            if (inst.subsetStart == null)
+                throw new IOException(filename + ": instância binária sem subconjuntos");
+            A = inst.coefficients;
+            N = A.size;
+            maxRowAbsSum = inst.maxRowAbsSum;
+            setSubsets(inst.subsetStart, inst.subsetElems);
+            return N;
+        }
+
         BufferedReader br = new BufferedReader(new FileReader(filename));
 
         // ---- N ----
@@ -56,25 +77,22 @@ public class SCQBF extends QBF {
         }
 
         // ---- S_i ----
-        subsets = new ArrayList<>(N);
+        int[][] sets = new int[N][];
         for (int i = 0; i < N; i++) {
             String line = br.readLine();
             if (line == null) line = "";
             String[] toks = line.trim().isEmpty() ? new String[0] : line.trim().split("\\s+");
-            List<Integer> set = new ArrayList<>(toks.length);
-            for (String t : toks) {
-                int elem1Based = Integer.parseInt(t);
-                set.add(elem1Based - 1); // guarda 0-based
+            sets[i] = new int[toks.length];
+            for (int t = 0; t < toks.length; t++) {
+                int elem1Based = Integer.parseInt(toks[t]);
+                sets[i][t] = elem1Based - 1; // guarda 0-based
             }
-            subsets.add(set);
         }
+        buildSubsetIndex(sets);
 
         // ---- Matriz A triangular superior ----
-        A = new Double[N][N];
-        // zera toda a matriz (evita null)
-        for (int i = 0; i < N; i++)
-            for (int j = 0; j < N; j++)
-                A[i][j] = 0.0;
+        CoefficientsBuilder coefficients = new CoefficientsBuilder(N);
+        double[] rowAbsSum = new double[N];
 
         for (int i = 0; i < N; i++) {
             String line = br.readLine();
@@ -86,15 +104,77 @@ public class SCQBF extends QBF {
                 int col = i + j;
                 if (col >= N) break;
                 double v = Double.parseDouble(vals[j]);
-                A[i][col] = v;
-                A[col][i] = v; // espelha para deixar simétrica
+                if (col == i) {
+                    coefficients.add(i, i, v);
+                    rowAbsSum[i] += Math.abs(v);
+                } else {
+                    // espelha para deixar simétrica: a_ij = a_ji = v
+                    coefficients.add(i, col, 2 * v);
+                    rowAbsSum[i] += Math.abs(v);
+                    rowAbsSum[col] += Math.abs(v);
+                }
             }
         }
+        A = coefficients.build(); // densa ou CSR, conforme a densidade medida
+        maxRowAbsSum = 0.0;
+        for (double s : rowAbsSum) if (s > maxRowAbsSum) maxRowAbsSum = s;
 
         br.close();
         return N; // tamanho do domínio (nº de variáveis x_i)
     }
 
+    /** Monta S_i e o índice inverso elemento → subconjuntos em CSR. */
+    private void buildSubsetIndex(int[][] sets) {
+        int[] start = new int[N + 1];
+        for (int i = 0; i < N; i++) start[i + 1] = start[i] + sets[i].length;
+        int[] elems = new int[start[N]];
+        for (int i = 0; i < N; i++) System.arraycopy(sets[i], 0, elems, start[i], sets[i].length);
+        setSubsets(start, elems);
+    }
+
+    /**
+     * Usa S_i já em CSR e monta o índice inverso. Cada S_i é ordenado e tem
+     * os elementos repetidos descartados: um k repetido seria contado mais de
+     * uma vez em coverCount, nos deltas e no CoverState.
+     */
+    private void setSubsets(int[] start, int[] elems) {
+        subsetStart = new int[N + 1];
+        subsetElems = new int[elems.length];
+        int size = 0;
+        for (int i = 0; i < N; i++) {
+            int from = size;
+            System.arraycopy(elems, start[i], subsetElems, from, start[i + 1] - start[i]);
+            Arrays.sort(subsetElems, from, from + start[i + 1] - start[i]);
+            for (int p = from; p < from + start[i + 1] - start[i]; p++) {
+                if (p == from || subsetElems[p] != subsetElems[size - 1]) subsetElems[size++] = subsetElems[p];
+            }
+            subsetStart[i + 1] = size;
+        }
+        if (size < subsetElems.length) subsetElems = Arrays.copyOf(subsetElems, size);
+        coverStart = new int[N + 1];
+        for (int k : subsetElems) coverStart[k + 1]++;
+        for (int k = 0; k < N; k++) coverStart[k + 1] += coverStart[k];
+        coverSets = new int[coverStart[N]];
+        int[] next = Arrays.copyOf(coverStart, N);
+        for (int i = 0; i < N; i++) {
+            for (int p = subsetStart[i]; p < subsetStart[i + 1]; p++) coverSets[next[subsetElems[p]]++] = i;
+        }
+        coverCount = new int[N];
+    }
+
+    /**
+     * Além das variáveis, recalcula a contagem de cobertura de cada elemento,
+     * usada pelos deltas de inserção, remoção e troca.
+     */
+    @Override
+    public void setVariables(Solution<Integer> sol) {
+        super.setVariables(sol);
+        Arrays.fill(coverCount, 0);
+        for (Integer i : sol) {
+            for (int p = subsetStart[i]; p < subsetStart[i + 1]; p++) coverCount[subsetElems[p]]++;
+        }
+    }
+
     @Override
     public Double evaluateQBF() {
         // x^T A x (usa implementação do QBF, agora com A preenchida)
@@ -105,34 +185,203 @@ public class SCQBF extends QBF {
         return quad - lambda * uncovered;
     }
 
+    @Override
+    public double evaluateQBF(long[] x) {
+        return super.evaluateQBF(x) - lambda * countUncovered(x);
+    }
+
+    @Override
+    public void evaluateQBF(long[][] x, int count, double[] values) {
+        super.evaluateQBF(x, count, values);
+        for (int k = 0; k < count; k++) {
+            values[k] -= lambda * countUncovered(x[k]);
+        }
+    }
+
+    /*
+     * Os deltas abaixo supõem que coverCount corresponde a variables, o que é
+     * garantido pelos pontos de entrada do Evaluator via setVariables.
+     */
+
+    @Override
+    public Double evaluateInsertionQBF(int i) {
+        if (variables[i] == 1) return 0.0;
+        // passam a ser cobertos os k ∈ S_i ainda descobertos
+        int gained = 0;
+        for (int p = subsetStart[i]; p < subsetStart[i + 1]; p++) {
+            if (coverCount[subsetElems[p]] == 0) gained++;
+        }
+        return super.evaluateInsertionQBF(i) + lambda * gained;
+    }
+
+    @Override
+    public Double evaluateRemovalQBF(int i) {
+        if (variables[i] == 0) return 0.0;
+        // ficam descobertos os k ∈ S_i cobertos apenas por S_i
+        int lost = 0;
+        for (int p = subsetStart[i]; p < subsetStart[i + 1]; p++) {
+            if (coverCount[subsetElems[p]] == 1) lost++;
+        }
+        return super.evaluateRemovalQBF(i) - lambda * lost;
+    }
+
+    @Override
+    public Double evaluateExchangeQBF(int in, int out) {
+        // casos degenerados caem em inserção/remoção simples, que já penalizam
+        if (in == out || variables[in] == 1 || variables[out] == 0)
+            return super.evaluateExchangeQBF(in, out);
+
+        // retira S_out temporariamente das contagens e avalia a entrada de S_in
+        int lost = 0, gained = 0;
+        for (int p = subsetStart[out]; p < subsetStart[out + 1]; p++) {
+            if (--coverCount[subsetElems[p]] == 0) lost++;
+        }
+        for (int p = subsetStart[in]; p < subsetStart[in + 1]; p++) {
+            if (coverCount[subsetElems[p]]++ == 0) gained++;
+        }
+        for (int p = subsetStart[in]; p < subsetStart[in + 1]; p++) coverCount[subsetElems[p]]--;
+        for (int p = subsetStart[out]; p < subsetStart[out + 1]; p++) coverCount[subsetElems[p]]++;
+
+        return super.evaluateExchangeQBF(in, out) + lambda * (gained - lost);
+    }
+
+    /**
+     * Delta do flip de x_i sobre o vetor de bits x, incluindo a variação da
+     * penalidade de cobertura. Não usa estado compartilhado: a cobertura de
+     * cada k ∈ S_i é verificada pelo índice inverso, o que custa
+     * O(Σ_{k ∈ S_i} |cover(k)|) no pior caso, e não O(|S_i|), pois não há
+     * contagens de cobertura para uma solução qualquer. É o custo dos flips
+     * avaliados pelo GA; o O(|S_i|) vale só para o CoverState de newState(),
+     * que mantém as contagens de uma única solução.
+     */
+    @Override
+    public double evaluateFlipQBF(int i, long[] x) {
+        double delta = super.evaluateFlipQBF(i, x);
+
+        // k muda de estado (coberto/descoberto) se nenhum outro S_j selecionado o cobre
+        int changed = 0;
+        for (int p = subsetStart[i]; p < subsetStart[i + 1]; p++) {
+            if (!coveredByOther(subsetElems[p], i, x)) changed++;
+        }
+        boolean selected = ((x[i >>> 6] >>> i) & 1L) != 0;
+        return selected ? delta - lambda * changed : delta + lambda * changed;
+    }
+
+    /** Verifica se algum S_j selecionado em x, com j != except, cobre k. */
+    private boolean coveredByOther(int k, int except, long[] x) {
+        for (int q = coverStart[k]; q < coverStart[k + 1]; q++) {
+            int j = coverSets[q];
+            if (j != except && ((x[j >>> 6] >>> j) & 1L) != 0) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public QBFState newState() {
+        return new CoverState();
+    }
+
+    /**
+     * Estado incremental que, além do gradiente da parte quadrática, mantém
+     * quantos subconjuntos selecionados cobrem cada elemento. Assim o delta de
+     * um flip de x_i custa O(|S_i|) e sua aplicação O(n + |S_i|).
+     */
+    private class CoverState extends QBFState {
+
+        private final int[] count = new int[N];
+        private int uncovered = N;
+
+        CoverState() {
+            super(SCQBF.this.A);
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            Arrays.fill(count, 0);
+            uncovered = N;
+        }
+
+        @Override
+        public double value() {
+            return quadratic - lambda * uncovered;
+        }
+
+        @Override
+        public double flipDelta(int i) {
+            boolean selected = contains(i);
+            int changed = 0;
+            for (int p = subsetStart[i]; p < subsetStart[i + 1]; p++) {
+                if (count[subsetElems[p]] == (selected ? 1 : 0)) changed++;
+            }
+            double delta = quadraticFlipDelta(i);
+            return selected ? delta - lambda * changed : delta + lambda * changed;
+        }
+
+        @Override
+        public void flip(int i) {
+            boolean selected = contains(i);
+            super.flip(i);
+            for (int p = subsetStart[i]; p < subsetStart[i + 1]; p++) {
+                int k = subsetElems[p];
+                if (selected) {
+                    if (--count[k] == 0) uncovered++;
+                } else {
+                    if (count[k]++ == 0) uncovered--;
+                }
+            }
+        }
+    }
+
     /** Conta quantos elementos k não estão cobertos por nenhum S_i com x_i=1. */
     private int countUncovered() {
-        boolean[] covered = new boolean[N];
-        // para cada i selecionado, marca todos k ∈ S_i como cobertos
-        for (int i = 0; i < N; i++) {
-            if (variables[i] == 1.0) {
-                for (int k : subsets.get(i)) covered[k] = true;
+        // k está coberto se algum S_i que o contém está selecionado
+        int miss = 0;
+        for (int k = 0; k < N; k++) {
+            boolean covered = false;
+            for (int q = coverStart[k]; q < coverStart[k + 1] && !covered; q++) {
+                covered = variables[coverSets[q]] == 1.0;
             }
+            if (!covered) miss++;
         }
+        return miss;
+    }
+
+    /** Versão de countUncovered() para uma solução em vetor de bits. */
+    private int countUncovered(long[] x) {
         int miss = 0;
-        for (boolean c : covered) if (!c) miss++;
+        for (int k = 0; k < N; k++) {
+            boolean covered = false;
+            for (int q = coverStart[k]; q < coverStart[k + 1] && !covered; q++) {
+                int j = coverSets[q];
+                covered = ((x[j >>> 6] >>> j) & 1L) != 0;
+            }
+            if (!covered) miss++;
+        }
         return miss;
     }
 
     /** Lambda padrão: maior soma absoluta por linha de A, multiplicada por 2. */
     private double computeDefaultLambda() {
-        double maxRowAbsSum = 0.0;
-        for (int i = 0; i < N; i++) {
-            double s = 0.0;
-            for (int j = 0; j < N; j++) s += Math.abs(A[i][j]);
-            if (s > maxRowAbsSum) maxRowAbsSum = s;
-        }
         // multiplicador > 1 para tornar a cobertura mais importante que qualquer melhoria local
         return Math.max(1.0, 2.0 * maxRowAbsSum);
     }
 
     // getters úteis (opcional)
     public int getN() { return N; }
-    public List<List<Integer>> getSubsets() { return subsets; }
+    public List<List<Integer>> getSubsets() {
+        List<List<Integer>> subsets = new ArrayList<>(N);
+        for (int i = 0; i < N; i++) {
+            List<Integer> set = new ArrayList<>(subsetStart[i + 1] - subsetStart[i]);
+            for (int p = subsetStart[i]; p < subsetStart[i + 1]; p++) set.add(subsetElems[p]);
+            subsets.add(set);
+        }
+        return subsets;
+    }
     public double getLambda() { return lambda; }
+
+    // usados por QBFBinaryFormat na conversão
+    int[] subsetStart() { return subsetStart; }
+    int[] subsetElems() { return subsetElems; }
+    double maxRowAbsSum() { return maxRowAbsSum; }
 }
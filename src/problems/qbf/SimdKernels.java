@@ -0,0 +1,51 @@
+package problems.qbf;
+
+/**
+ * The SIMD kernels used by {@link DenseCoefficients} over its packed
+ * coefficients. They are implemented with the Vector API by VectorKernels, in
+ * the separately compiled source set src-vector, so that this source set
+ * builds without the module jdk.incubator.vector; see
+ * {@link DenseCoefficients#VECTORIZED}.
+ * 
+ * The kernels take heap arrays only. The other representations run the
+ * scalar kernels of their own classes even when the Vector API is available:
+ * {@link MappedCoefficients}, whose coefficients stay in the mapped file,
+ * and {@link SparseCoefficients}, whose rows are too short to fill vectors.
+ */
+interface SimdKernels {
+
+	/**
+	 * Gives the number of doubles processed by each vector operation.
+	 *
+	 * @return the lane count of the vectors.
+	 */
+	int lanes();
+
+	/**
+	 * Sums a[base + j] over every j in [from, to) such that x_j = 1.
+	 */
+	double maskedSum(double[] a, int base, long[] x, int from, int to);
+
+	/**
+	 * Sums x[j] * a[base + j] over j in [from, to).
+	 */
+	double dot(double[] a, int base, double[] x, int from, int to);
+
+	/**
+	 * Sums x[j] * a[columnBase[j] + i] over j in [0, i). The table columnBase
+	 * must be padded to a whole number of vectors.
+	 */
+	double columnDot(double[] a, int[] columnBase, double[] x, int i);
+
+	/**
+	 * Adds scale * a[base + j] to g[j] for every j in [from, to).
+	 */
+	void axpy(double[] a, int base, double scale, double[] g, int from, int to);
+
+	/**
+	 * Adds scale * a[columnBase[j] + i] to g[j] for every j in [0, i), with
+	 * columnBase padded as in {@link #columnDot(double[], int[], double[], int)}.
+	 */
+	void columnAxpy(double[] a, int[] columnBase, int i, double scale, double[] g);
+
+}
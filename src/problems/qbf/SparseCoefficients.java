@@ -0,0 +1,164 @@
+package problems.qbf;
+
+import java.util.Arrays;
+
+/**
+ * Coefficients of a QBF kept in compressed sparse row (CSR) form, for
+ * instances in which most pairs of variables do not interact. The diagonal
+ * is stored apart, and the pair coefficient a_{ij} + a_{ji} of every nonzero
+ * pair is stored in both row i and row j, so that the neighbours of any
+ * variable are contiguous. A full evaluation costs O(nnz) over the rows of
+ * the selected variables, and a flip contribution costs O(degree(i)).
+ * 
+ * Instances are normally built by {@link CoefficientsBuilder}, which picks
+ * this representation when the measured density is low.
+ */
+public class SparseCoefficients extends QBFCoefficients {
+
+	/**
+	 * The diagonal coefficients a_{ii}.
+	 */
+	private final double[] diagonal;
+
+	/**
+	 * The neighbours of variable i are at positions rowStart[i] to
+	 * rowStart[i+1] - 1 of {@link #columns} and {@link #values}.
+	 */
+	private final int[] rowStart;
+
+	/**
+	 * The neighbour of each nonzero pair, sorted within each row.
+	 */
+	private final int[] columns;
+
+	/**
+	 * The pair coefficient a_{ij} + a_{ji} of each nonzero pair.
+	 */
+	private final double[] values;
+
+	/**
+	 * Wraps already built CSR arrays. Each off-diagonal pair must appear in
+	 * both of its rows, with the columns of every row sorted and distinct.
+	 *
+	 * @param diagonal
+	 *            the diagonal coefficients.
+	 * @param rowStart
+	 *            start of each row, with n + 1 positions.
+	 * @param columns
+	 *            the neighbours of each row.
+	 * @param values
+	 *            the pair coefficients of each row.
+	 */
+	public SparseCoefficients(double[] diagonal, int[] rowStart, int[] columns, double[] values) {
+		super(diagonal.length);
+		if (rowStart.length != size + 1 || columns.length != rowStart[size] || values.length != rowStart[size])
+			throw new IllegalArgumentException("Inconsistent CSR arrays");
+		this.diagonal = diagonal;
+		this.rowStart = rowStart;
+		this.columns = columns;
+		this.values = values;
+	}
+
+	/**
+	 * Gives the number of nonzero pair coefficients, each pair counted once.
+	 *
+	 * @return the number of off-diagonal nonzeros of the symmetric form.
+	 */
+	public int pairs() {
+		return rowStart[size] / 2;
+	}
+
+	/**
+	 * The CSR arrays, read by {@link QBFBinaryFormat} to write the instance.
+	 */
+	int[] rowStart() {
+		return rowStart;
+	}
+
+	int[] columns() {
+		return columns;
+	}
+
+	double[] values() {
+		return values;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		if (i == j)
+			return diagonal[i];
+		int p = Arrays.binarySearch(columns, rowStart[i], rowStart[i + 1], j);
+		return p >= 0 ? values[p] : 0.0;
+	}
+
+	@Override
+	public double diagonal(int i) {
+		return diagonal[i];
+	}
+
+	@Override
+	public double quadratic(double[] x) {
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			if (x[i] == 0.0)
+				continue;
+			double row = diagonal[i];
+			for (int p = rowStart[i]; p < rowStart[i + 1]; p++) {
+				int j = columns[p];
+				if (j > i)
+					row += x[j] * values[p];
+			}
+			sum += x[i] * row;
+		}
+		return sum;
+	}
+
+	@Override
+	public double quadratic(long[] x) {
+		double sum = 0.0;
+		for (int w = 0; w < x.length; w++) {
+			for (long word = x[w]; word != 0; word &= word - 1) {
+				int i = (w << 6) + Long.numberOfTrailingZeros(word);
+				double row = diagonal[i];
+				// cada par é somado uma única vez, na linha do menor índice
+				for (int p = rowStart[i + 1] - 1; p >= rowStart[i]; p--) {
+					int j = columns[p];
+					if (j < i)
+						break;
+					if (((x[j >>> 6] >>> j) & 1L) != 0)
+						row += values[p];
+				}
+				sum += row;
+			}
+		}
+		return sum;
+	}
+
+	@Override
+	public double contribution(double[] x, int i) {
+		double sum = diagonal[i];
+		for (int p = rowStart[i]; p < rowStart[i + 1]; p++) {
+			sum += x[columns[p]] * values[p];
+		}
+		return sum;
+	}
+
+	@Override
+	public double contribution(long[] x, int i) {
+		double sum = diagonal[i];
+		for (int p = rowStart[i]; p < rowStart[i + 1]; p++) {
+			int j = columns[p];
+			if (((x[j >>> 6] >>> j) & 1L) != 0)
+				sum += values[p];
+		}
+		return sum;
+	}
+
+	@Override
+	public void addRow(int i, double scale, double[] g) {
+		for (int p = rowStart[i]; p < rowStart[i + 1]; p++) {
+			g[columns[p]] += scale * values[p];
+		}
+	}
+
+}
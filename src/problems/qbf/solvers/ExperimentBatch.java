@@ -0,0 +1,228 @@
+package problems.qbf.solvers;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import metaheuristics.ga.GAMetrics;
+import metaheuristics.ga.GA_SCQBF;
+import problems.InstrumentedEvaluator;
+import problems.qbf.SCQBF;
+import solutions.Solution;
+
+/**
+ * Executa o produto cartesiano instâncias × configurações × sementes do GA
+ * para o MAX-SC-QBF em paralelo.
+ *
+ * Cada instância é lida uma única vez e o mesmo objeto SCQBF é compartilhado
+ * por todas as execuções sobre ela: o GA só usa os pontos de entrada
+ * thread-safe do Evaluator, que apenas leem a matriz e os subconjuntos. As
+ * execuções são escalonadas num ForkJoinPool (roubo de trabalho) com uma
+ * thread por núcleo e cada uma usa seu próprio gerador, semeado pela
+ * semente da execução. As linhas do CSV são gravadas por um único escritor,
+ * na ordem de enumeração das execuções, independentemente da ordem em que
+ * terminam.
+ *
+ * Cada execução avalia através de um InstrumentedEvaluator próprio, e as
+ * linhas do CSV trazem as avaliações completas, os flips avaliados por
+ * deltas e as chamadas de cada método do Evaluator. Com um diretório de
+ * métricas definido, cada execução é instrumentada (AbstractGA.useMetrics)
+ * e grava nele runN.csv e runN.json, com os tempos por fase e as séries por
+ * geração, e runN_latency.csv, com as latências de cada método do
+ * Evaluator. Com um diretório de checkpoints,
+ * cada execução grava runN.ckpt a cada checkpointInterval gerações e, se o
+ * arquivo já existir ao iniciar, retoma dele em vez de recomeçar; um lote
+ * interrompido pode assim ser executado de novo, perdendo só as gerações
+ * desde o último checkpoint de cada execução. O checkpoint é apagado quando
+ * a execução termina, de modo que rodar de novo um lote completo repete as
+ * execuções em vez de retomá-las já no fim. As linhas de execuções retomadas
+ * têm Resumed=true: o tempo e as contagens do Evaluator delas cobrem só a
+ * parte executada após a retomada.
+ */
+public class ExperimentBatch {
+
+    /** Parâmetros de uma configuração do GA. */
+    public static final class Configuration {
+        public final String name;
+        public final int generations;
+        public final int popSize;
+        public final double mutationRate;
+
+        public Configuration(String name, int generations, int popSize, double mutationRate) {
+            this.name = name;
+            this.generations = generations;
+            this.popSize = popSize;
+            this.mutationRate = mutationRate;
+        }
+    }
+
+    public static final String CSV_HEADER =
+            "Run,Instance,Experiment,Seed,Generations,Population,MutationRate,BestFitness,TimeSeconds,Resumed,"
+            + InstrumentedEvaluator.CSV_HEADER;
+
+    private final List<String> instances;
+    private final List<Configuration> configurations;
+    private final long[] seeds;
+    private final int parallelism;
+    private File metricsDirectory;
+    private File checkpointDirectory;
+    private int checkpointInterval;
+
+    public ExperimentBatch(List<String> instances, List<Configuration> configurations, long[] seeds) {
+        this(instances, configurations, seeds, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ExperimentBatch(List<String> instances, List<Configuration> configurations, long[] seeds,
+                           int parallelism) {
+        this.instances = instances;
+        this.configurations = configurations;
+        this.seeds = seeds;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /** Diretório onde gravar as métricas de cada execução, ou null para não instrumentar. */
+    public void setMetricsDirectory(File metricsDirectory) {
+        this.metricsDirectory = metricsDirectory;
+    }
+
+    /** Diretório dos checkpoints das execuções, ou null para não gravá-los. */
+    public void setCheckpointDirectory(File checkpointDirectory, int checkpointInterval) {
+        this.checkpointDirectory = checkpointDirectory;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public int size() {
+        return instances.size() * configurations.size() * seeds.length;
+    }
+
+    /** Executa todas as combinações, gravando uma linha de CSV por execução em out. */
+    public void run(PrintWriter out) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // ---- lê cada instância uma única vez, em paralelo ----
+            List<Future<SCQBF>> loading = new ArrayList<>();
+            for (String filename : instances) {
+                loading.add(pool.submit((Callable<SCQBF>) () -> new SCQBF(filename)));
+            }
+            Map<String, SCQBF> problems = new HashMap<>();
+            for (int i = 0; i < instances.size(); i++) {
+                problems.put(instances.get(i), loading.get(i).get());
+            }
+
+            // ---- agenda as execuções ----
+            OrderedCsvWriter writer = new OrderedCsvWriter(out);
+            List<Future<?>> runs = new ArrayList<>(size());
+            int run = 0;
+            for (String filename : instances) {
+                for (Configuration config : configurations) {
+                    for (long seed : seeds) {
+                        final int index = run++;
+                        final SCQBF problem = problems.get(filename);
+                        runs.add(pool.submit((Callable<Void>) () -> {
+                            writer.write(index, execute(index, filename, problem, config, seed));
+                            return null;
+                        }));
+                    }
+                }
+            }
+            for (Future<?> f : runs) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Lote de experimentos interrompido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Falha numa execução do lote", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private String execute(int index, String filename, SCQBF problem, Configuration config, long seed)
+            throws IOException {
+        long start = System.nanoTime();
+        // o problema é compartilhado; os contadores são da execução (latências só com métricas)
+        InstrumentedEvaluator evaluator = new InstrumentedEvaluator(problem, metricsDirectory != null);
+        GA_SCQBF ga = new GA_SCQBF(evaluator, config.generations, config.popSize, config.mutationRate);
+        ga.setSeed(seed);
+        ga.setVerbose(false);
+        ga.setUseMetrics(metricsDirectory != null);
+        Solution<Integer> best;
+        boolean resumed = false;
+        if (checkpointDirectory != null) {
+            checkpointDirectory.mkdirs();
+            Path checkpoint = new File(checkpointDirectory, "run" + index + ".ckpt").toPath();
+            ga.setCheckpoint(checkpoint, checkpointInterval);
+            resumed = Files.exists(checkpoint);
+            best = resumed ? ga.resume(checkpoint) : ga.solve();
+            // execução concluída: o checkpoint final não deve ser retomado por um novo lote
+            Files.deleteIfExists(checkpoint);
+        } else {
+            best = ga.solve();
+        }
+        double time = (System.nanoTime() - start) / 1e9;
+        if (metricsDirectory != null) {
+            writeMetrics(index, ga.getMetrics(), evaluator);
+        }
+
+        System.out.printf("[%d/%d] %-30s %-30s seed=%d | Melhor fitness: %.4f | Tempo: %.2fs%s\n",
+                index + 1, size(), filename, config.name, seed, best.cost, time, resumed ? " (retomada)" : "");
+
+        return String.format("%d,%s,%s,%d,%d,%d,%.4f,%.8f,%.3f,%b,%s",
+                index, filename, config.name, seed, config.generations, config.popSize,
+                config.mutationRate, best.cost, time, resumed, evaluator.csvCounts());
+    }
+
+    private void writeMetrics(int index, GAMetrics metrics, InstrumentedEvaluator evaluator)
+            throws IOException {
+        metricsDirectory.mkdirs();
+        try (PrintWriter csv = new PrintWriter(new FileWriter(new File(metricsDirectory, "run" + index + ".csv")))) {
+            metrics.writeCsv(csv);
+        }
+        try (Writer json = new FileWriter(new File(metricsDirectory, "run" + index + ".json"))) {
+            metrics.writeJson(json);
+        }
+        try (PrintWriter csv = new PrintWriter(new FileWriter(new File(metricsDirectory, "run" + index + "_latency.csv")))) {
+            evaluator.writeLatencyCsv(csv, true);
+        }
+    }
+
+    /**
+     * Escritor de CSV compartilhado pelas execuções: guarda as linhas que
+     * chegam fora de ordem e as grava assim que todas as anteriores chegarem.
+     */
+    private static final class OrderedCsvWriter {
+        private final PrintWriter out;
+        private final Map<Integer, String> pending = new HashMap<>();
+        private int next = 0;
+
+        OrderedCsvWriter(PrintWriter out) {
+            this.out = out;
+        }
+
+        synchronized void write(int index, String row) {
+            pending.put(index, row);
+            String line;
+            while ((line = pending.remove(next)) != null) {
+                out.println(line);
+                next++;
+            }
+            out.flush();
+        }
+    }
+}